@@ -0,0 +1,67 @@
+package com.demo.webrtc;
+
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// cookie check done by AnonymousIdentityFilter on every request, from several request threads at once.
+// cached=false disables the verified id cache (size 0), so every check computes the HMAC and the threads
+// compete for the Macs of the pool (macPoolSize=1: all but one clone a new Mac per request)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdentityBenchmark {
+
+    private static final String SECRET = "benchmark-secret";
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Param({"1", "64"})
+    public int macPoolSize;
+
+    private AnonymousIdentityService service;
+
+    @Setup
+    public void setup() {
+        service = new AnonymousIdentityService(SECRET, macPoolSize, cached ? 10_000 : 0, 10);
+    }
+
+    // every thread is its own user, requests are reused (the filter only reads the cookie)
+    @State(Scope.Thread)
+    public static class Request {
+        private MockHttpServletRequest request;
+        private MockHttpServletResponse response;
+
+        @Setup
+        public void setup(IdentityBenchmark benchmark) throws Exception {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(), "HmacSHA256"));
+            String userId = "usr-" + UUID.randomUUID();
+            String cookie = userId + ":" + Base64.getEncoder().encodeToString(mac.doFinal(userId.getBytes(StandardCharsets.UTF_8)));
+            request = new MockHttpServletRequest();
+            request.setCookies(new Cookie("userId", cookie));
+            response = new MockHttpServletResponse();
+            if (!userId.equals(benchmark.service.extractOrCreateUserId(request, response))) {
+                throw new IllegalStateException("benchmark cookie does not verify");
+            }
+        }
+    }
+
+    @Benchmark
+    public String extractOrCreateUserId(Request r) {
+        return service.extractOrCreateUserId(r.request, r.response);
+    }
+}
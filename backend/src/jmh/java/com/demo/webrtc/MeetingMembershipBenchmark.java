@@ -0,0 +1,45 @@
+package com.demo.webrtc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// joins and leaves racing on one meeting (copy on write participant set, replaced with compareAndSet)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MeetingMembershipBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedMeeting {
+
+        // participants that stay in the meeting, the size of the set copied on every change
+        @Param({"4", "64"})
+        public int present;
+
+        Meeting meeting;
+
+        @Setup
+        public void setup() {
+            meeting = new Meeting("usr-owner", present + 16, false);
+            for (int i = 0; i < present; i++) {
+                meeting.addParticipant("usr-" + i);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Participant {
+        final String userId = "usr-" + UUID.randomUUID();
+    }
+
+    @Benchmark
+    public void joinAndLeave(SharedMeeting shared, Participant participant) {
+        shared.meeting.addParticipant(participant.userId);
+        shared.meeting.removeParticipant(participant.userId);
+    }
+}
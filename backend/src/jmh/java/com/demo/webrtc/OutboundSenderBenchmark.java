@@ -0,0 +1,63 @@
+package com.demo.webrtc;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// one message to every session of a big room while each send blocks for a while (slow socket),
+// platform sender pool against virtual threads (spring.threads.virtual.enabled)
+// sample time, so the result includes the p99 of the whole fan out
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1) // one fan out at a time, they share the latch
+@State(Scope.Benchmark)
+public class OutboundSenderBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"200"})
+    public int sessions;
+
+    @Param({"200"})
+    public int sendMicros;
+
+    private SessionOutboxFactory outboxFactory;
+    private final List<SessionOutbox> outboxes = new ArrayList<>();
+    private final TextMessage message = new TextMessage("{\"kind\":\"signal\",\"to\":\"usr-b\",\"from\":\"usr-a\",\"payload\":\"x\"}");
+    private volatile CountDownLatch sent;
+
+    @Setup
+    public void setup() {
+        outboxFactory = new SessionOutboxFactory(256, 524288, 60_000, 0, virtualThreads);
+        for (int i = 0; i < sessions; i++) {
+            SessionContext ctx = new SessionContext("usr-" + i, "benchmark", null);
+            outboxes.add(outboxFactory.create(SignalingFixture.session(ctx, m -> {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(sendMicros));
+                sent.countDown();
+            })));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        outboxFactory.shutdown();
+    }
+
+    @Benchmark
+    public void fanOut() throws InterruptedException {
+        sent = new CountDownLatch(sessions);
+        for (SessionOutbox outbox : outboxes) {
+            outbox.offer(message);
+        }
+        sent.await();
+    }
+}
@@ -0,0 +1,55 @@
+package com.demo.webrtc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// roster snapshots at different room sizes. every invocation moves the roster version, so nothing is served
+// from the snapshot cache: getUserInfoMessage builds and encodes a snapshot, broadcastCurrentUsers also hands
+// it to every session's outbox (the sends themselves happen on the sender thread and are not measured)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RosterBenchmark {
+
+    @Param({"6", "16", "100", "500"})
+    public int participants;
+
+    private SignalingFixture fixture;
+    private Meeting meeting;
+    private MeetingWebSocketHandler handler;
+
+    @Setup
+    public void setup() {
+        // flushes are far out, the benchmark thread is the only one broadcasting
+        fixture = new SignalingFixture(new SessionOutboxFactory(Integer.MAX_VALUE, Long.MAX_VALUE, 60_000, 1, false),
+                TimeUnit.HOURS.toMillis(1));
+        meeting = new Meeting("usr-0", participants, false);
+        handler = fixture.handlerFor(meeting);
+        for (int i = 0; i < participants; i++) {
+            String userId = "usr-" + i;
+            meeting.addParticipant(userId);
+            handler.afterConnectionEstablished(SignalingFixture.session(new SessionContext(userId, meeting.getMeetingId(), handler), m -> {}));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public org.springframework.web.socket.WebSocketMessage<?> userInfoMessage() {
+        meeting.nextRosterVersion();
+        return handler.getUserInfoMessage();
+    }
+
+    @Benchmark
+    public void broadcastCurrentUsers() {
+        meeting.nextRosterVersion();
+        handler.broadcastCurrentUsers();
+    }
+}
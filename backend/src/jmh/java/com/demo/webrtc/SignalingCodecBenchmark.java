@@ -0,0 +1,77 @@
+package com.demo.webrtc;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// cost of one relayed signal: decoding the inbound frame and encoding it again for the recipient
+// (what handleSignalingMessage does), against the fast path that only reads the header and splices in the version
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignalingCodecBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String json;
+    private TextMessage jsonFrame;
+    private BinaryMessage cborFrame;
+
+    @Setup
+    public void setup() {
+        // an offer with a realistically sized sdp (~3 KB)
+        StringBuilder sdp = new StringBuilder("v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n");
+        for (int i = 0; i < 40; i++) {
+            sdp.append("a=candidate:").append(i).append(" 1 udp 2122260223 192.168.1.").append(i).append(" 5").append(i).append("00 typ host\r\n");
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "offer");
+        payload.put("content", sdp.toString());
+        Map<String, Object> signal = new LinkedHashMap<>();
+        signal.put("kind", "signal");
+        signal.put("to", "usr-b");
+        signal.put("from", "usr-a");
+        signal.put("payload", objectMapper.writeValueAsString(payload));
+        json = objectMapper.writeValueAsString(signal);
+        jsonFrame = new TextMessage(json);
+        cborFrame = (BinaryMessage) SignalingCodec.CBOR.encode(SignalingCodec.JSON.decode(jsonFrame, WebSocketMessage.class));
+    }
+
+    @Benchmark
+    public WebSocketMessage decodeJson() {
+        return SignalingCodec.JSON.decode(jsonFrame, WebSocketMessage.class);
+    }
+
+    @Benchmark
+    public WebSocketMessage decodeCbor() {
+        return SignalingCodec.CBOR.decode(cborFrame, WebSocketMessage.class);
+    }
+
+    @Benchmark
+    public org.springframework.web.socket.WebSocketMessage<?> relayFullPathJson() {
+        SignalingMessage message = (SignalingMessage) SignalingCodec.JSON.decode(jsonFrame, WebSocketMessage.class);
+        message.setVersion(42L);
+        return SignalingCodec.JSON.encode(message);
+    }
+
+    @Benchmark
+    public org.springframework.web.socket.WebSocketMessage<?> relayFullPathCbor() {
+        SignalingMessage message = (SignalingMessage) SignalingCodec.CBOR.decode(cborFrame, WebSocketMessage.class);
+        message.setVersion(42L);
+        return SignalingCodec.CBOR.encode(message);
+    }
+
+    @Benchmark
+    public TextMessage relayFastPath() {
+        SignalingFastPath.Header header = SignalingFastPath.parseHeader(objectMapper, json);
+        return new TextMessage(SignalingFastPath.spliceVersion(json, header, 42L));
+    }
+}
@@ -0,0 +1,239 @@
+package com.demo.webrtc;
+
+import tools.jackson.databind.JsonNode;
+
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// one simulated participant (see LoadGenerator): sends what WebRTCWrapper sends and answers like it, without
+// keeping any negotiation state. every signal payload carries its send time, so the receiving client can record
+// the relay latency (same JVM, same clock)
+final class LoadClient implements WebSocket.Listener {
+
+    private final LoadGenerator load;
+    private final String meetingId;
+    private final String cookie;
+    private final String userId;
+    private final List<String> peers = new ArrayList<>();
+
+    // listener callbacks of one socket never overlap, the old socket's may overlap with the new one's after a reconnect
+    private volatile WebSocket ws;
+    private volatile boolean ready;
+    private volatile boolean reconnecting;
+    private volatile boolean stopped;
+    private volatile long connectStarted;
+    private CountDownLatch readyLatch;
+    private final StringBuilder partial = new StringBuilder();
+    private ScheduledFuture<?> heartbeat;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    // the jdk client allows one outstanding text send per socket, so sends are chained
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+
+    LoadClient(LoadGenerator load, String meetingId, String cookie) {
+        this.load = load;
+        this.meetingId = meetingId;
+        this.cookie = cookie;
+        this.userId = cookie.substring(0, cookie.indexOf(':'));
+    }
+
+    void setPeers(List<LoadClient> room) {
+        room.stream().map(c -> c.userId).filter(id -> !id.equals(userId)).forEach(peers::add);
+    }
+
+    void connect(CountDownLatch ready) {
+        this.readyLatch = ready;
+        open();
+    }
+
+    private void open() {
+        connectStarted = System.nanoTime();
+        load.http.newWebSocketBuilder()
+                .header("Cookie", "userId=" + cookie)
+                .buildAsync(URI.create(load.wsBase + meetingId), this)
+                .whenComplete((socket, e) -> {
+                    if (e != null) {
+                        load.connectFailures.increment();
+                    }
+                });
+    }
+
+    void start(long heartbeatMs) {
+        for (String peer : peers) {
+            if (userId.compareTo(peer) < 0) {
+                signal(peer, "requesting", null);
+            }
+        }
+        // token negotiation state as heartbeat, once negotiated that is "synchronized"
+        heartbeat = load.timer.scheduleAtFixedRate(() -> peers.forEach(peer -> signal(peer, "synchronized", null)),
+                ThreadLocalRandom.current().nextLong(heartbeatMs), heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    // a page reload: new socket, then negotiate with everyone again
+    void reconnect() {
+        WebSocket current = ws;
+        if (!ready || current == null || stopped) {
+            return;
+        }
+        ready = false;
+        reconnecting = true;
+        ws = null; // whatever the old socket still receives is ignored
+        current.sendClose(WebSocket.NORMAL_CLOSURE, "").whenComplete((socket, e) -> open());
+    }
+
+    void stop() {
+        stopped = true;
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        WebSocket current = ws;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "");
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        sendLock.lock();
+        try {
+            lastSend = CompletableFuture.completedFuture(null);
+        } finally {
+            sendLock.unlock();
+        }
+        if (stopped) {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+            return;
+        }
+        ws = webSocket;
+        webSocket.request(1);
+        send("{\"kind\":\"requestInfo\"}");
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        webSocket.request(1);
+        if (webSocket != ws) {
+            return null;
+        }
+        partial.append(data);
+        if (!last) {
+            return null;
+        }
+        String frame = partial.toString();
+        partial.setLength(0);
+
+        JsonNode root = load.mapper.readTree(frame);
+        switch (root.path("kind").asString()) {
+            case "signal" -> onSignal(root);
+            case "batch" -> root.path("signals").forEach(this::onSignal);
+            case "info", "rosterPage" -> onReady();
+            default -> {
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        if (statusCode != WebSocket.NORMAL_CLOSURE && !stopped) {
+            load.unexpectedCloses.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        }
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        if (!stopped) {
+            load.unexpectedCloses.computeIfAbsent(-1, code -> new LongAdder()).increment();
+        }
+    }
+
+    private void onReady() {
+        if (ready) {
+            return;
+        }
+        ready = true;
+        long took = System.nanoTime() - connectStarted;
+        if (reconnecting) {
+            load.reconnect.record(took, TimeUnit.NANOSECONDS);
+            peers.forEach(peer -> signal(peer, "requesting", null));
+        } else {
+            load.connect.record(took, TimeUnit.NANOSECONDS);
+            readyLatch.countDown();
+        }
+    }
+
+    // payloads start with {"type":"...","t":<nanos>, see signal
+    private void onSignal(JsonNode signal) {
+        String from = signal.path("from").asString();
+        String payload = signal.path("payload").asString();
+        int typeEnd = payload.indexOf('"', 9);
+        String type = payload.substring(9, typeEnd);
+        int timeStart = typeEnd + 6;
+        long sentAt = Long.parseLong(payload, timeStart, payload.indexOf(',', timeStart), 10);
+        load.relay.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+        load.received.increment();
+
+        switch (type) {
+            case "requesting" -> signal(from, "acknowledging", null);
+            case "acknowledging" -> {
+                signal(from, "synchronized", null);
+                signal(from, "offer", load.offerContent);
+                candidates(from);
+            }
+            case "offer" -> {
+                signal(from, "answer", load.answerContent);
+                candidates(from);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void candidates(String to) {
+        for (int i = 0; i < load.iceCandidates; i++) {
+            signal(to, "ice-candidate", load.iceContent);
+        }
+    }
+
+    // content is already a JSON string literal
+    private void signal(String to, String type, String content) {
+        StringBuilder payload = new StringBuilder(content != null ? content.length() + 96 : 96)
+                .append("{\"type\":\"").append(type).append("\",\"t\":").append(System.nanoTime())
+                .append(",\"token\":\"").append(userId).append('"');
+        if (content != null) {
+            payload.append(",\"counter\":").append(counter.getAndIncrement()).append(",\"content\":").append(content);
+        }
+        payload.append('}');
+        if (send("{\"kind\":\"signal\",\"to\":\"" + to + "\",\"from\":\"" + userId
+                + "\",\"payload\":" + load.mapper.writeValueAsString(payload.toString()) + "}")) {
+            load.sent.increment();
+        }
+    }
+
+    private boolean send(String frame) {
+        WebSocket target = ws;
+        if (target == null || target.isOutputClosed() || stopped) {
+            return false;
+        }
+        sendLock.lock();
+        try {
+            lastSend = lastSend.handle((v, e) -> null).thenCompose(v -> target.sendText(frame, true));
+        } finally {
+            sendLock.unlock();
+        }
+        return true;
+    }
+}
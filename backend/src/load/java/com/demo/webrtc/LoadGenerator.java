@@ -0,0 +1,298 @@
+package com.demo.webrtc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// in-process load test for capacity planning: starts the app on loopback, creates meetings and joins them over
+// the REST api, connects every participant over websocket and replays what the browser client sends (token
+// negotiation, offer/answer, ice candidates, heartbeats) while some clients keep reconnecting.
+// reports relay throughput and latency, connect and reconnect times, and the thread and heap use of the JVM.
+// clients and server share the JVM (and the CPUs), threads named load-* or HttpClient-* are the clients'
+//
+//   mvn -Pload test-compile exec:exec -Dload.args="meetings=1000 participants=4 duration=60"
+//
+// options: meetings (100), participants per meeting (4), duration in seconds (30), warmup in seconds before the
+// relay numbers count (10, the first negotiations run on cold code), ice candidates per side (4),
+// heartbeat-ms (1000, the browser's interval), churn as the fraction of clients reconnecting per second (0.01),
+// transport servlet|reactive (servlet), virtual-threads true|false (false)
+public final class LoadGenerator {
+
+    final ObjectMapper mapper = new ObjectMapper();
+    final HttpClient http;
+    final String wsBase;
+    final int iceCandidates;
+
+    // replaced after the warmup, a timer cannot be reset
+    private volatile MeterRegistry registry = new SimpleMeterRegistry();
+    final Timer connect = timer("load.connect");
+    volatile Timer relay = timer("load.relay");
+    volatile Timer reconnect = timer("load.reconnect");
+    final LongAdder sent = new LongAdder();
+    final LongAdder received = new LongAdder();
+    final LongAdder connectFailures = new LongAdder();
+    final Map<Integer, LongAdder> unexpectedCloses = new ConcurrentHashMap<>();
+
+    // an offer with a realistically sized sdp (~3 KB) and a candidate, as JSON.stringify'd by the browser
+    final String offerContent;
+    final String answerContent;
+    final String iceContent;
+
+    private final String httpBase;
+    private final MeterRegistry serverMeters;
+    private final ExecutorService clientExecutor;
+    final ScheduledExecutorService timer;
+
+    private LoadGenerator(String httpBase, String wsBase, int iceCandidates, MeterRegistry serverMeters) {
+        this.httpBase = httpBase;
+        this.serverMeters = serverMeters;
+        this.wsBase = wsBase;
+        this.iceCandidates = iceCandidates;
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), named("load-client-"));
+        this.timer = Executors.newScheduledThreadPool(1, named("load-timer-"));
+        this.http = HttpClient.newBuilder().executor(clientExecutor).build();
+
+        StringBuilder sdp = new StringBuilder("v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n");
+        for (int i = 0; i < 40; i++) {
+            sdp.append("a=rtpmap:").append(96 + i).append(" VP8/90000\r\na=rtcp-fb:").append(96 + i).append(" nack pli\r\n");
+        }
+        this.offerContent = mapper.writeValueAsString(mapper.writeValueAsString(Map.of("type", "offer", "sdp", sdp.toString())));
+        this.answerContent = mapper.writeValueAsString(mapper.writeValueAsString(Map.of("type", "answer", "sdp", sdp.toString())));
+        this.iceContent = mapper.writeValueAsString(mapper.writeValueAsString(Map.of(
+                "candidate", "candidate:842163049 1 udp 1677729535 192.0.2.10 54321 typ srflx raddr 10.0.0.5 rport 54321 generation 0 ufrag abcd network-cost 999",
+                "sdpMid", "0", "sdpMLineIndex", 0, "usernameFragment", "abcd")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int meetings = Integer.parseInt(options.getOrDefault("meetings", "100"));
+        int participants = Integer.parseInt(options.getOrDefault("participants", "4"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int ice = Integer.parseInt(options.getOrDefault("ice", "4"));
+        long heartbeatMs = Long.parseLong(options.getOrDefault("heartbeat-ms", "1000"));
+        double churn = Double.parseDouble(options.getOrDefault("churn", "0.01"));
+        boolean reactive = "reactive".equals(options.getOrDefault("transport", "servlet"));
+        boolean virtualThreads = Boolean.parseBoolean(options.getOrDefault("virtual-threads", "false"));
+
+        // devtools would restart the app in another class loader, with a second copy of this class
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // the per-ip limits would throttle everything after the first few clients, all of them come from loopback
+        ConfigurableApplicationContext app = SpringApplication.run(WebRTCSignalingApplication.class,
+                "--server.port=0",
+                "--app.ws.reactive.enabled=" + reactive,
+                "--app.ws.reactive.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--app.hmac.sha256.secret=load-test",
+                "--app.coturn.secret=load-test",
+                "--app.cookies.secure=false",
+                "--app.cors.allowed-origins=http://localhost",
+                "--app.meeting.max-capacity=" + Math.max(500, participants),
+                "--app.ratelimit.create.per-minute=1000000",
+                "--app.ratelimit.create.burst=1000000",
+                "--app.ratelimit.join.per-minute=1000000",
+                "--app.ratelimit.join.burst=1000000",
+                "--app.ws.handshake.per-second=1000000",
+                "--app.ws.handshake.burst=1000000",
+                "--logging.level.com.demo.webrtc=WARN");
+        int port = Integer.parseInt(app.getEnvironment().getProperty("local.server.port"));
+        int wsPort = reactive ? app.getBean(ReactiveSignalingServer.class).getPort() : port;
+
+        LoadGenerator load = new LoadGenerator("http://localhost:" + port, "ws://localhost:" + wsPort + "/wsr/", ice,
+                app.getBean(MeterRegistry.class));
+        int exit = 0;
+        try {
+            System.out.printf("%d meetings x %d participants, %s transport, virtual threads %s, %d s%n",
+                    meetings, participants, reactive ? "reactive" : "servlet", virtualThreads, duration);
+            load.run(meetings, participants, warmup, duration, heartbeatMs, churn);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exit = 1;
+        } finally {
+            app.close();
+        }
+        System.exit(exit);
+    }
+
+    private void run(int meetings, int participants, int warmup, int duration, long heartbeatMs, double churn) throws Exception {
+        long started = System.nanoTime();
+        List<LoadClient> clients = setUp(meetings, participants);
+        System.out.printf("created %d meetings, %d joins in %d ms%n", meetings, clients.size(), millisSince(started));
+
+        CountDownLatch ready = new CountDownLatch(clients.size());
+        started = System.nanoTime();
+        clients.forEach(c -> c.connect(ready));
+        if (!ready.await(Math.max(30, clients.size() / 100), TimeUnit.SECONDS)) {
+            System.out.printf("only %d of %d clients connected%n", clients.size() - ready.getCount(), clients.size());
+        }
+        System.out.printf("connected %d clients in %d ms%n", clients.size() - ready.getCount(), millisSince(started));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        threads.resetPeakThreadCount();
+        int[] peakServerThreads = {0};
+        long[] peakHeap = {0};
+        ScheduledFuture<?> sampler = timer.scheduleAtFixedRate(() -> {
+            peakServerThreads[0] = Math.max(peakServerThreads[0], serverThreads(threads));
+            peakHeap[0] = Math.max(peakHeap[0], memory.getHeapMemoryUsage().getUsed());
+        }, 0, 1, TimeUnit.SECONDS);
+
+        // the lower userId of each pair negotiates first, like two browsers that joined at about the same time
+        clients.forEach(c -> c.start(heartbeatMs));
+        int churnPerSecond = (int) Math.round(churn * clients.size());
+        ScheduledFuture<?> churner = timer.scheduleAtFixedRate(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < churnPerSecond; i++) {
+                clients.get(random.nextInt(clients.size())).reconnect();
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+
+        if (warmup > 0) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmup));
+            registry = new SimpleMeterRegistry();
+            relay = timer("load.relay");
+            reconnect = timer("load.reconnect");
+            sent.reset();
+            received.reset();
+        }
+        started = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+        churner.cancel(false);
+        sampler.cancel(false);
+        clients.forEach(LoadClient::stop);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("signals sent %d, received %d, %.0f/s relayed%n", sent.sum(), received.sum(), received.sum() / seconds);
+        report("relay", relay);
+        report("connect", connect);
+        report("reconnect", reconnect);
+        // the server's own breakdown of the relay (see RelayTrace), warmup included
+        for (String name : List.of("parse", "route", "loop", "outbox", "write")) {
+            Timer hop = serverMeters.get("signaling.relay.hop").tag("hop", name).timer();
+            System.out.printf("  hop %-7s mean=%.3fms max=%.2fms%n", name, hop.mean(TimeUnit.MILLISECONDS), hop.max(TimeUnit.MILLISECONDS));
+        }
+        if (connectFailures.sum() > 0) {
+            System.out.printf("failed connects %d%n", connectFailures.sum());
+        }
+        unexpectedCloses.forEach((code, count) -> System.out.printf("closed by server with %d: %d%n", code, count.sum()));
+        System.out.printf("threads peak %d, server threads peak %d, heap used peak %d MB%n",
+                threads.getPeakThreadCount(), peakServerThreads[0], peakHeap[0] >> 20);
+    }
+
+    // each meeting is created by its first participant, the others join, which also hands out their identities
+    private List<LoadClient> setUp(int meetings, int participants) throws Exception {
+        ExecutorService setup = Executors.newFixedThreadPool(16, named("load-setup-"));
+        try {
+            List<Future<List<LoadClient>>> rooms = new ArrayList<>();
+            for (int m = 0; m < meetings; m++) {
+                rooms.add(setup.submit(() -> {
+                    HttpResponse<String> created = post("/api/meeting/create?capacity=" + participants, null);
+                    String meetingId = created.body();
+                    String ownerCookie = cookieOf(created);
+                    post("/api/meeting/" + meetingId + "/join", ownerCookie);
+                    List<LoadClient> room = new ArrayList<>();
+                    room.add(new LoadClient(this, meetingId, ownerCookie));
+                    for (int p = 1; p < participants; p++) {
+                        room.add(new LoadClient(this, meetingId, cookieOf(post("/api/meeting/" + meetingId + "/join", null))));
+                    }
+                    room.forEach(c -> c.setPeers(room));
+                    return room;
+                }));
+            }
+            List<LoadClient> clients = new ArrayList<>();
+            for (Future<List<LoadClient>> room : rooms) {
+                clients.addAll(room.get());
+            }
+            return clients;
+        } finally {
+            setup.shutdown();
+        }
+    }
+
+    private HttpResponse<String> post(String path, String cookie) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(httpBase + path)).POST(HttpRequest.BodyPublishers.noBody());
+        if (cookie != null) {
+            request.header("Cookie", "userId=" + cookie);
+        }
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private static String cookieOf(HttpResponse<?> response) {
+        String header = response.headers().firstValue("Set-Cookie")
+                .orElseThrow(() -> new IllegalStateException("No identity cookie"));
+        int end = header.indexOf(';');
+        return header.substring("userId=".length(), end < 0 ? header.length() : end);
+    }
+
+    private static int serverThreads(ThreadMXBean threads) {
+        int count = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+            if (info != null && !info.getThreadName().startsWith("load-") && !info.getThreadName().startsWith("HttpClient-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Timer timer(String name) {
+        return Timer.builder(name)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .percentilePrecision(2)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    private static void report(String name, Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        StringBuilder line = new StringBuilder(String.format("%-9s n=%d", name, snapshot.count()));
+        for (ValueAtPercentile p : snapshot.percentileValues()) {
+            line.append(String.format(" p%s=%.2fms", p.percentile() * 100, p.value(TimeUnit.MILLISECONDS)));
+        }
+        line.append(String.format(" max=%.2fms", snapshot.max(TimeUnit.MILLISECONDS)));
+        System.out.println(line);
+    }
+
+    private static long millisSince(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -10,27 +10,91 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AnonymousIdentityService {
-    private final Mac hmacSha256;
+    private final MacPool hmacSha256;
+
+    // cookie values that were verified before -> userId, so the filter does not compute an HMAC per request
+    // only verified values are ever put in, so the size is bounded by actual users, capped at maxCachedIds (0 disables it)
+    private final Map<String, VerifiedId> verifiedIds = new ConcurrentHashMap<>();
+    private final int maxCachedIds;
+    private final int evictBatch;
+    private final long cacheTtlNanos;
 
     private static final Logger log = LoggerFactory.getLogger(AnonymousIdentityService.class);
 
-    public AnonymousIdentityService(@Value("{app.hmac.sha256.secret}") String secret) {
+    public AnonymousIdentityService(@Value("${app.hmac.sha256.secret}") String secret,
+                                    @Value("${app.identity.mac-pool-size:64}") int macPoolSize,
+                                    @Value("${app.identity.cache-size:10000}") int maxCachedIds,
+                                    @Value("${app.identity.cache-ttl-minutes:10}") long cacheTtlMinutes) {
         try {
-            hmacSha256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes(), "HmacSHA256");
-            hmacSha256.init(secretKey);
+            hmacSha256 = new MacPool("HmacSHA256", secret.getBytes(), macPoolSize);
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
             throw new RuntimeException("Failed to instantiate Mac in AnonymousIdentityService");
         }
+        this.maxCachedIds = maxCachedIds;
+        this.evictBatch = Math.max(1, maxCachedIds / 64);
+        this.cacheTtlNanos = TimeUnit.MINUTES.toNanos(cacheTtlMinutes);
+    }
+
+    private record VerifiedId(String userId, long expiresAt) {}
+
+    private byte[] sign(String userId) {
+        return hmacSha256.doFinal(userId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // userId if the cookie value "userId:signature" is correctly signed, otherwise null
+    private String verify(String value) {
+        long now = System.nanoTime();
+        VerifiedId cached = verifiedIds.get(value);
+        if (cached != null) {
+            if (cached.expiresAt() - now > 0) {
+                return cached.userId();
+            }
+            verifiedIds.remove(value, cached);
+        }
+
+        int sep = value.indexOf(':');
+        if (sep < 0 || value.indexOf(':', sep + 1) >= 0) {
+            return null;
+        }
+        String userId = value.substring(0, sep);
+        byte[] expected = Base64.getEncoder().encode(sign(userId));
+        byte[] actual = value.substring(sep + 1).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+
+        if (maxCachedIds > 0) {
+            if (verifiedIds.size() >= maxCachedIds) {
+                evictCachedIds();
+            }
+            verifiedIds.put(value, new VerifiedId(userId, now + cacheTtlNanos));
+        }
+        return userId;
+    }
+
+    // a bounded batch of whatever comes first, so a full cache costs a few removals per miss instead of a scan
+    // evicted ids are verified again on their next request, expired ones are also dropped when they are looked up
+    private void evictCachedIds() {
+        Iterator<String> it = verifiedIds.keySet().iterator();
+        for (int i = 0; i < evictBatch && it.hasNext(); i++) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    int getCachedIds() {
+        return verifiedIds.size();
     }
 
 
@@ -39,44 +103,43 @@ public class AnonymousIdentityService {
 
     private Optional<String> extractCookie(HttpServletRequest request, String cookieName) {
         Cookie[] cookies = request.getCookies();
-        if (cookies == null) {
-            return Optional.empty();
-        } else {
-            Optional<Cookie> cookie = Arrays.stream(cookies)
-                    .filter(c -> c.getName().equals(cookieName))
-                    .findFirst();
-            return cookie.map(Cookie::getValue);
+        if (cookies != null) {
+            for (Cookie c : cookies) {
+                if (c.getName().equals(cookieName)) {
+                    return Optional.of(c.getValue());
+                }
+            }
         }
+        return Optional.empty();
     }
 
 
     public boolean isValidSignedUserId(Object object) {
         if (object instanceof String s) {
-            String[] parts = s.split(":");
-            if (parts.length == 2 && parts[0].length() == 40) { // 36 length for UUID.randomUUID() and 4 extra for "usr-"
-                String signature = Base64.getEncoder().encodeToString(hmacSha256.doFinal(parts[0].getBytes()));
-                return signature.equals(parts[1]);
-            }
+            String userId = verify(s);
+            return userId != null && userId.length() == 40; // 36 length for UUID.randomUUID() and 4 extra for "usr-"
         }
         return false;
     }
 
+    // userId of a signed cookie value, null if it is missing or not valid (no fresh id, for the reactive transport)
+    public String verifiedUserId(String cookieValue) {
+        String userId = cookieValue != null ? verify(cookieValue) : null;
+        return userId != null && userId.length() == 40 ? userId : null;
+    }
+
     public String extractOrCreateUserId(HttpServletRequest request, HttpServletResponse response) {
         Optional<String> userId = extractCookie(request, "userId");
 
         if (userId.isPresent()) {
-            String uIdAndSignature = userId.get();
-            String[] parts = uIdAndSignature.split(":");
-            if (parts.length == 2) {
-                String signature = Base64.getEncoder().encodeToString(hmacSha256.doFinal(parts[0].getBytes()));
-                if (signature.equals(parts[1])) {
-                    return parts[0];
-                }
+            String verified = verify(userId.get());
+            if (verified != null) {
+                return verified;
             }
         }
 
         String freshId = "usr-" + UUID.randomUUID();
-        String signature = Base64.getEncoder().encodeToString(hmacSha256.doFinal(freshId.getBytes()));
+        String signature = Base64.getEncoder().encodeToString(sign(freshId));
         log.info("Generated fresh userId {}", freshId);
 
         ResponseCookie cookie = ResponseCookie.from("userId", freshId + ":" + signature)
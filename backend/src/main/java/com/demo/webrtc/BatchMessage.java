@@ -0,0 +1,29 @@
+package com.demo.webrtc;
+
+import java.util.List;
+
+// several signals in one frame (trickle ICE sends lots of tiny ones in a burst)
+public class BatchMessage extends WebSocketMessage {
+
+    public static final int MAX_SIGNALS = 100;
+
+    public BatchMessage() {
+        this.setKind("batch");
+    }
+
+    public BatchMessage(List<SignalingMessage> signals) {
+        this();
+        this.signals = signals;
+    }
+
+    private List<SignalingMessage> signals;
+
+    public List<SignalingMessage> getSignals() {
+        return signals;
+    }
+
+    public void setSignals(List<SignalingMessage> signals) {
+        this.signals = signals;
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.demo.webrtc;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterConfig {
+
+    // in-process bus, enough for nodes in one JVM. for nodes in separate processes set app.cluster.bus to something
+    // else and provide a MessageBus backed by a real broker
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.bus", havingValue = "loopback", matchIfMissing = true)
+    public MessageBus messageBus() {
+        return new LoopbackMessageBus();
+    }
+}
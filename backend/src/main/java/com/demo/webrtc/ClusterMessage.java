@@ -0,0 +1,16 @@
+package com.demo.webrtc;
+
+// everything nodes send each other over the MessageBus, plain fields so any bus can serialize it
+// text carries the frame, the accepted subprotocol (CONNECT), the close reason (CLOSE/CLOSED) or the reply value
+public record ClusterMessage(Type type, String sourceNode, long correlationId, String meetingId, String sessionId,
+                             String userId, String text, byte[] binary, int code) {
+
+    public enum Type {
+        // edge -> owner, for a client socket connected to the edge
+        CONNECT, FRAME, CLOSED,
+        // owner -> edge
+        SEND, CLOSE,
+        // REST calls for meetings owned by another node, answered with REPLY
+        JOIN, EXISTS, REPLY
+    }
+}
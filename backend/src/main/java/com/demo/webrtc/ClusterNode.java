@@ -0,0 +1,227 @@
+package com.demo.webrtc;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// cluster mode: every meeting lives on exactly one node, picked by consistent hashing of the meetingId
+// a node that gets a socket for a meeting it does not own (the edge) keeps the socket and relays the frames to the
+// owner over the MessageBus, where a RemoteWebSocketSession stands in for it. REST calls for foreign meetings
+// are forwarded as JOIN/EXISTS requests
+// with app.cluster.enabled=false (default) every meeting is local and none of this is used
+@Component
+public class ClusterNode {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterNode.class);
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final ConsistentHashRing ring;
+    private final MessageBus bus;
+    private final MeetingHandlerRegistry registry;
+    private final SessionOutboxFactory outboxFactory;
+
+    // edge side: client sockets by session id
+    private final Map<String, WebSocketSession> edgeSessions = new ConcurrentHashMap<>();
+    // owner side: stand ins by edge node + session id
+    private final Map<String, RemoteWebSocketSession> remoteSessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Map<Long, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
+    private volatile Function<ClusterMessage, String> requestHandler = m -> null;
+
+    public ClusterNode(@Value("${app.cluster.enabled:false}") boolean enabled,
+                       @Value("${app.cluster.node-id:local}") String nodeId,
+                       @Value("${app.cluster.nodes:local}") List<String> nodes,
+                       @Value("${app.cluster.virtual-nodes:128}") int virtualNodes,
+                       MessageBus bus, MeetingHandlerRegistry registry, SessionOutboxFactory outboxFactory) {
+        if (enabled && !nodes.contains(nodeId)) {
+            throw new IllegalArgumentException("app.cluster.nodes has to contain this node (" + nodeId + ")");
+        }
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.ring = enabled ? new ConsistentHashRing(nodes, virtualNodes) : null;
+        this.bus = bus;
+        this.registry = registry;
+        this.outboxFactory = outboxFactory;
+        if (enabled) {
+            bus.register(nodeId, this::receive);
+            log.info("Cluster node {} of {}", nodeId, nodes);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLocal(String meetingId) {
+        return !enabled || ring.ownerOf(meetingId).equals(nodeId);
+    }
+
+    public String ownerOf(String meetingId) {
+        return enabled ? ring.ownerOf(meetingId) : nodeId;
+    }
+
+    // JOIN/EXISTS requests from other nodes, answered with whatever the handler returns (set by MeetingService)
+    public void setRequestHandler(Function<ClusterMessage, String> requestHandler) {
+        this.requestHandler = requestHandler;
+    }
+
+    public CompletableFuture<String> request(ClusterMessage.Type type, String meetingId, String userId) {
+        long id = correlationIds.incrementAndGet();
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        pendingRequests.put(id, reply);
+        reply.whenComplete((r, e) -> pendingRequests.remove(id));
+        bus.send(ownerOf(meetingId), new ClusterMessage(type, nodeId, id, meetingId, null, userId, null, null, 0));
+        return reply;
+    }
+
+    // edge side, called by RoutingWebSocketHandler for sessions whose SessionContext has an owner node
+
+    public void connect(WebSocketSession session, SessionContext ctx) {
+        ctx.setOutbox(outboxFactory.create(session));
+        edgeSessions.put(session.getId(), session);
+        bus.send(ctx.getOwnerNode(), new ClusterMessage(ClusterMessage.Type.CONNECT, nodeId, 0, ctx.getMeetingId(),
+                session.getId(), ctx.getUserId(), session.getAcceptedProtocol(), null, 0));
+    }
+
+    public void forward(WebSocketSession session, SessionContext ctx, org.springframework.web.socket.WebSocketMessage<?> message) {
+        String text = message instanceof TextMessage t ? t.getPayload() : null;
+        byte[] binary = message instanceof BinaryMessage b ? bytes(b.getPayload()) : null;
+        bus.send(ctx.getOwnerNode(), new ClusterMessage(ClusterMessage.Type.FRAME, nodeId, 0, ctx.getMeetingId(),
+                session.getId(), ctx.getUserId(), text, binary, 0));
+    }
+
+    public void disconnect(WebSocketSession session, SessionContext ctx, CloseStatus status) {
+        if (edgeSessions.remove(session.getId(), session)) {
+            bus.send(ctx.getOwnerNode(), new ClusterMessage(ClusterMessage.Type.CLOSED, nodeId, 0, ctx.getMeetingId(),
+                    session.getId(), ctx.getUserId(), status.getReason(), null, status.getCode()));
+        }
+    }
+
+    // owner side, called by RemoteWebSocketSession
+
+    void sendToEdge(RemoteWebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message) {
+        String text = message instanceof TextMessage t ? t.getPayload() : null;
+        byte[] binary = message instanceof BinaryMessage b ? bytes(b.getPayload()) : null;
+        if (text == null && binary == null) {
+            return; // pings etc. are the edge's business
+        }
+        bus.send(session.getEdgeNode(), new ClusterMessage(ClusterMessage.Type.SEND, nodeId, 0, null,
+                session.getEdgeSessionId(), null, text, binary, 0));
+    }
+
+    void closeOnEdge(RemoteWebSocketSession session, CloseStatus status) {
+        bus.send(session.getEdgeNode(), new ClusterMessage(ClusterMessage.Type.CLOSE, nodeId, 0, null,
+                session.getEdgeSessionId(), null, status.getReason(), null, status.getCode()));
+    }
+
+    private void receive(ClusterMessage m) {
+        try {
+            switch (m.type()) {
+                case CONNECT -> onRemoteConnect(m);
+                case FRAME -> onRemoteFrame(m);
+                case CLOSED -> onRemoteClosed(m);
+                case SEND -> onSend(m);
+                case CLOSE -> onClose(m);
+                case JOIN, EXISTS -> bus.send(m.sourceNode(), new ClusterMessage(ClusterMessage.Type.REPLY, nodeId,
+                        m.correlationId(), m.meetingId(), null, null, requestHandler.apply(m), null, 0));
+                case REPLY -> {
+                    CompletableFuture<String> reply = pendingRequests.get(m.correlationId());
+                    if (reply != null) {
+                        reply.complete(m.text());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("[Cluster] Failed to handle {} from {}", m.type(), m.sourceNode(), e);
+        }
+    }
+
+    private void onRemoteConnect(ClusterMessage m) {
+        RemoteWebSocketSession session = new RemoteWebSocketSession(this, m.sourceNode(), m.sessionId(), m.text());
+        MeetingWebSocketHandler handler = registry.get(m.meetingId());
+        if (handler == null) {
+            session.close(WebSocketCloseStatus.MEETING_NOT_FOUND.get());
+            return;
+        }
+        session.getAttributes().put("userId", m.userId());
+        session.getAttributes().put("meetingId", m.meetingId());
+        session.getAttributes().put(SessionContext.ATTRIBUTE, new SessionContext(m.userId(), m.meetingId(), handler));
+        remoteSessions.put(session.getId(), session);
+        handler.afterConnectionEstablished(session);
+    }
+
+    private void onRemoteFrame(ClusterMessage m) {
+        RemoteWebSocketSession session = remoteSessions.get(m.sourceNode() + "/" + m.sessionId());
+        SessionContext ctx = session != null ? SessionContext.of(session) : null;
+        if (ctx == null || ctx.getHandler() == null) {
+            return;
+        }
+        if (m.text() != null) {
+            ctx.getHandler().handleTextMessage(session, new TextMessage(m.text()));
+        } else if (m.binary() != null) {
+            ctx.getHandler().handleBinaryMessage(session, new BinaryMessage(m.binary()));
+        }
+    }
+
+    private void onRemoteClosed(ClusterMessage m) {
+        RemoteWebSocketSession session = remoteSessions.remove(m.sourceNode() + "/" + m.sessionId());
+        SessionContext ctx = session != null ? SessionContext.of(session) : null;
+        if (ctx == null || ctx.getHandler() == null) {
+            return;
+        }
+        session.markClosed();
+        ctx.getHandler().afterConnectionClosed(session, new CloseStatus(m.code(), m.text()));
+    }
+
+    private void onSend(ClusterMessage m) {
+        WebSocketSession session = edgeSessions.get(m.sessionId());
+        SessionContext ctx = session != null ? SessionContext.of(session) : null;
+        if (ctx == null || ctx.getOutbox() == null) {
+            return;
+        }
+        ctx.getOutbox().offer(m.text() != null ? new TextMessage(m.text()) : new BinaryMessage(m.binary()));
+    }
+
+    private void onClose(ClusterMessage m) {
+        WebSocketSession session = edgeSessions.get(m.sessionId());
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(new CloseStatus(m.code(), m.text()));
+        } catch (IOException e) {
+            //
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer b = buffer.duplicate();
+        byte[] out = new byte[b.remaining()];
+        b.get(out);
+        return out;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (enabled) {
+            bus.unregister(nodeId);
+        }
+    }
+}
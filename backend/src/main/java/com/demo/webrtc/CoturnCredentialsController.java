@@ -3,13 +3,20 @@ package com.demo.webrtc;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.demo.webrtc.CoturnCredentialsService.IssuedCredentials;
 import com.demo.webrtc.CoturnCredentialsService.TurnCredentials;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 public class CoturnCredentialsController {
 
@@ -24,13 +31,22 @@ public class CoturnCredentialsController {
     @GetMapping("/api/turn-credentials")
     public ResponseEntity<?> getCoturnCredentials(HttpServletRequest request) {
         if (request.getAttribute("userId") instanceof String userId) {
+            IssuedCredentials issued = coturnCredentialsService.issue(userId);
+            // same credentials for the whole bucket, the browser may keep them until new ones are issued
+            long maxAge = Math.max(0, issued.renewAt() - Instant.now().getEpochSecond());
+            CacheControl cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePrivate();
             log.info("User {} received turn credentials", userId);
-            return new ResponseEntity<>(coturnCredentialsService.getTurnCredentials(userId), HttpStatus.OK);
+            // spring answers a matching If-None-Match (weak, lists, *) with 304 and the same headers, without the body
+            return ResponseEntity.ok().eTag(etag(issued.credentials())).cacheControl(cacheControl).body(issued.credentials());
         } else {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-
+    // the whole credential, so a client never revalidates to credentials it does not have
+    private static String etag(TurnCredentials credentials) {
+        String value = credentials.username() + ":" + credentials.password();
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
 
 }
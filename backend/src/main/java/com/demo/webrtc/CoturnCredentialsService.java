@@ -4,12 +4,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Service
@@ -17,28 +18,63 @@ public class CoturnCredentialsService {
 
     private static final Logger log =  LoggerFactory.getLogger(CoturnCredentialsService.class);
 
-    private final Mac hmacSHA1;
-    public CoturnCredentialsService(@Value("${app.coturn.secret}") String secret) {
+    private static final long VALIDITY_SECONDS = 60*60*2;
 
-        log.info("CoturnCredentialsService init... {}", secret);
+    private final MacPool hmacSHA1;
+
+    // credentials only depend on userId and the time bucket they are issued in, so they are computed once
+    // per user and bucket. the whole cache is replaced when the bucket changes
+    private final long bucketSeconds;
+    private final int maxCached;
+    private volatile Bucket current = new Bucket(-1, Map.of());
+
+    public CoturnCredentialsService(@Value("${app.coturn.secret}") String secret,
+                                    @Value("${app.coturn.bucket-minutes:60}") long bucketMinutes,
+                                    @Value("${app.coturn.cache-size:10000}") int maxCached) {
+
+        log.info("CoturnCredentialsService init...");
         try {
-            hmacSHA1 = Mac.getInstance("HmacSHA1");
-            SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes(), "HmacSHA1");
-            hmacSHA1.init(secretKey);
+            hmacSHA1 = new MacPool("HmacSHA1", secret.getBytes(), 16);
         } catch (NoSuchAlgorithmException | InvalidKeyException e)  {
             throw new RuntimeException("Failed to instantiate Mac in CoturnCredentialsService");
         }
+        this.bucketSeconds = bucketMinutes * 60;
+        this.maxCached = maxCached;
     }
 
-    // this is the magical format that coturn expects for this type of auth
+    private record Bucket(long index, Map<String, TurnCredentials> credentials) {}
+
     public TurnCredentials getTurnCredentials(String userId) {
+        return issue(userId).credentials();
+    }
 
-        // credentials valid until current time + 2 hours
-        long expirationTimestamp = Instant.now().getEpochSecond() + 60*60*2;
+    public IssuedCredentials issue(String userId) {
+        long bucketIndex = Instant.now().getEpochSecond() / bucketSeconds;
+        Bucket bucket = current;
+        if (bucket.index() != bucketIndex) {
+            bucket = new Bucket(bucketIndex, new ConcurrentHashMap<>());
+            current = bucket; // racing requests at the bucket boundary just compute twice
+        }
+        long renewAt = (bucketIndex + 1) * bucketSeconds;
+        TurnCredentials credentials = bucket.credentials().get(userId);
+        if (credentials == null) {
+            credentials = compute(userId, renewAt);
+            if (bucket.credentials().size() < maxCached) {
+                bucket.credentials().put(userId, credentials);
+            }
+        }
+        return new IssuedCredentials(credentials, renewAt);
+    }
+
+    // this is the magical format that coturn expects for this type of auth
+    private TurnCredentials compute(String userId, long bucketEnd) {
+
+        // credentials valid until the end of the bucket + 2 hours, so at least 2 hours from now
+        long expirationTimestamp = bucketEnd + VALIDITY_SECONDS;
 
         String username = expirationTimestamp + ":" + userId;
 
-        byte[] hash = hmacSHA1.doFinal(username.getBytes());
+        byte[] hash = hmacSHA1.doFinal(username.getBytes(StandardCharsets.UTF_8));
         String password = Base64.getEncoder().encodeToString(hash);
 
         return new  TurnCredentials(username, password);
@@ -46,4 +82,7 @@ public class CoturnCredentialsService {
 
     public record TurnCredentials(String username, String password) {}
 
+    // renewAt: epoch second from which new credentials are issued, clients can reuse these until then
+    public record IssuedCredentials(TurnCredentials credentials, long renewAt) {}
+
 }
@@ -0,0 +1,69 @@
+package com.demo.webrtc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// drain mode, entered when the application stops (before the web server shuts down): no new meetings and no new
+// sockets on this instance, and every open socket is closed with RECONNECT and its own random delay, so clients
+// come back spread over the jitter window instead of all in the same second
+@Component
+public class DrainCoordinator implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DrainCoordinator.class);
+
+    private final MeetingHandlerRegistry registry;
+    private final long reconnectDelayMillis;
+    private final long jitterMillis;
+
+    private volatile boolean running = false;
+    private volatile boolean draining = false;
+
+    public DrainCoordinator(MeetingHandlerRegistry registry,
+                            @Value("${app.drain.reconnect-delay-ms:1000}") long reconnectDelayMillis,
+                            @Value("${app.drain.jitter-ms:5000}") long jitterMillis) {
+        this.registry = registry;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public void drain() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        log.info("Draining, reconnect delay {} ms + up to {} ms jitter", reconnectDelayMillis, jitterMillis);
+        registry.all().forEach(handler -> handler.drain(() -> WebSocketCloseStatus.RECONNECT.get(
+                String.valueOf(reconnectDelayMillis + ThreadLocalRandom.current().nextLong(jitterMillis + 1)))));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        drain();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stops first, while the web server can still send the close frames
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+}
@@ -0,0 +1,83 @@
+package com.demo.webrtc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// per session message and byte budgets for inbound frames, checked before anything is parsed
+// (frame size itself is capped by the container, see WebSocketConfig)
+// budgets are token buckets kept as the time they are full again, like TokenBucketLimiter
+@Component
+public class InboundRateGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(InboundRateGuard.class);
+
+    private final long nanosPerMessage;
+    private final long messageBurstNanos;
+    private final long bytesPerSecond;
+    private final long byteBurstNanos;
+    private final int maxDropped;
+
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder droppedBytes = new LongAdder();
+    private final LongAdder closedSessions = new LongAdder();
+
+    public InboundRateGuard(@Value("${app.ws.inbound.messages-per-second:50}") int messagesPerSecond,
+                            @Value("${app.ws.inbound.messages-burst:200}") int messagesBurst,
+                            @Value("${app.ws.inbound.bytes-per-second:131072}") long bytesPerSecond,
+                            @Value("${app.ws.inbound.bytes-burst:524288}") long bytesBurst,
+                            @Value("${app.ws.inbound.max-dropped:200}") int maxDropped) {
+        this.nanosPerMessage = TimeUnit.SECONDS.toNanos(1) / messagesPerSecond;
+        this.messageBurstNanos = nanosPerMessage * messagesBurst;
+        this.bytesPerSecond = bytesPerSecond;
+        this.byteBurstNanos = bytesBurst * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        this.maxDropped = maxDropped;
+    }
+
+    // false if the frame has to be dropped. a session that keeps sending over budget is closed
+    // called on the session's receiving thread, the container never delivers two frames of one session at once
+    public boolean admit(WebSocketSession session, SessionContext ctx, int bytes) {
+        SessionContext.InboundBudget budget = ctx.getInboundBudget();
+        long now = System.nanoTime();
+        long messagesNext = Math.max(budget.messagesFullAt, now) + nanosPerMessage;
+        long bytesNext = Math.max(budget.bytesFullAt, now) + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        if (messagesNext - now <= messageBurstNanos && bytesNext - now <= byteBurstNanos) {
+            budget.messagesFullAt = messagesNext;
+            budget.bytesFullAt = bytesNext;
+            budget.dropped = 0;
+            return true;
+        }
+
+        droppedMessages.increment();
+        droppedBytes.add(bytes);
+        if (++budget.dropped == maxDropped) {
+            closedSessions.increment();
+            log.warn("[Meeting {}] Closing WSS {} of userId {}: {} frames in a row over inbound budget",
+                    ctx.getMeetingId(), session.getId(), ctx.getUserId(), maxDropped);
+            try {
+                session.close(WebSocketCloseStatus.FLOODING.get());
+            } catch (IOException e) {
+                //
+            }
+        }
+        return false;
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes.sum();
+    }
+
+    public long getClosedSessions() {
+        return closedSessions.sum();
+    }
+}
@@ -0,0 +1,52 @@
+package com.demo.webrtc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// in memory bus for nodes living in the same JVM (single node deployments and multi node tests)
+// one delivery thread per node keeps messages to a node in order
+public class LoopbackMessageBus implements MessageBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackMessageBus.class);
+
+    private record Receiver(Consumer<ClusterMessage> consumer, ExecutorService executor) {}
+
+    private final Map<String, Receiver> receivers = new ConcurrentHashMap<>();
+
+    @Override
+    public void send(String nodeId, ClusterMessage message) {
+        Receiver receiver = receivers.get(nodeId);
+        if (receiver == null) {
+            log.warn("Dropped {} for unknown node {}", message.type(), nodeId);
+            return;
+        }
+        receiver.executor().execute(() -> receiver.consumer().accept(message));
+    }
+
+    @Override
+    public void register(String nodeId, Consumer<ClusterMessage> consumer) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "bus-" + nodeId);
+            t.setDaemon(true);
+            return t;
+        });
+        Receiver previous = receivers.put(nodeId, new Receiver(consumer, executor));
+        if (previous != null) {
+            previous.executor().shutdown();
+        }
+    }
+
+    @Override
+    public void unregister(String nodeId) {
+        Receiver receiver = receivers.remove(nodeId);
+        if (receiver != null) {
+            receiver.executor().shutdown();
+        }
+    }
+}
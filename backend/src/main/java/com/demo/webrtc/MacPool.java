@@ -0,0 +1,38 @@
+package com.demo.webrtc;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Mac instances are not thread safe, each doFinal borrows one from the pool or clones a new one from the
+// initialized prototype (cheaper than getInstance + init). at most size instances are kept around
+public class MacPool {
+
+    private final Mac prototype;
+    private final BlockingQueue<Mac> pool;
+
+    public MacPool(String algorithm, byte[] key, int size) throws NoSuchAlgorithmException, InvalidKeyException {
+        this.prototype = Mac.getInstance(algorithm);
+        this.prototype.init(new SecretKeySpec(key, algorithm));
+        this.pool = new ArrayBlockingQueue<>(size);
+    }
+
+    public byte[] doFinal(byte[] input) {
+        Mac mac = pool.poll();
+        if (mac == null) {
+            try {
+                mac = (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("Mac provider does not support clone", e);
+            }
+        }
+        try {
+            return mac.doFinal(input);
+        } finally {
+            pool.offer(mac); // dropped if the pool is full
+        }
+    }
+}
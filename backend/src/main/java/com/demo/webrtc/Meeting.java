@@ -6,84 +6,167 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public class Meeting {
 
     private static final Logger log = LoggerFactory.getLogger(Meeting.class);
 
-    private final int MAX_CAPACITY = 6;
+    public static final int DEFAULT_CAPACITY = 6;
+    public static final Duration STALE_AFTER = Duration.ofMinutes(10);
+
+    private final int capacity;
+    // large rooms (webinar style) don't broadcast the roster, sessions subscribe to the peers they care about
+    private final boolean largeRoom;
     private final String meetingId;
-    private final Set<String> participants;
+    // immutable snapshot, replaced with compareAndSet. readers never lock, writers never hold a lock while
+    // the add/remove callbacks run (those close sockets etc.)
+    // the time of the last leave is swapped with the participants, so an emptied meeting never shows an old one
+    // and a removal that lost the race does not move it. same for the epoch, see checkMembership
+    private final AtomicReference<Membership> membership;
     private final String owner;
 
-    private Instant lastLeaveTimestamp;
+    // epoch: bumped by every removal
+    private record Membership(Set<String> participants, Instant lastLeaveTimestamp, long epoch) {}
+
+    // bumped on every roster change (join/leave/connect/disconnect), see MeetingRoster
+    private final AtomicLong rosterVersion = new AtomicLong(0);
 
-    private Consumer<String> onParticipantAdded;
-    private Consumer<String> onParticipantRemoved;
+    // called after the change is visible in getParticipants(). concurrent changes may publish out of order,
+    // so listeners should check getParticipants() instead of trusting the event order
+    // (the handler and the journal both listen)
+    private final List<Consumer<String>> onParticipantAdded = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> onParticipantRemoved = new CopyOnWriteArrayList<>();
+    // after the last participant left, see MeetingService.scheduleExpiry
+    private volatile Runnable onEmptied;
 
 
     public Meeting(String owner) {
-        this.meetingId = UUID.randomUUID().toString();
-        participants = ConcurrentHashMap.newKeySet();
-        lastLeaveTimestamp = Instant.now();
+        this(owner, DEFAULT_CAPACITY, false);
+    }
+
+    public Meeting(String owner, int capacity, boolean largeRoom) {
+        this(UUID.randomUUID().toString(), owner, capacity, largeRoom);
+    }
+
+    public Meeting(String meetingId, String owner, int capacity, boolean largeRoom) {
+        this.meetingId = meetingId;
+        this.capacity = capacity;
+        this.largeRoom = largeRoom;
+        this.membership = new AtomicReference<>(new Membership(Set.of(), Instant.now(), 0));
         this.owner = owner;
     }
 
     public MeetingJoinResult addParticipant(String participantId) {
-        synchronized (participants) {
-            if (participants.contains(participantId)) {
+        while (true) {
+            Membership current = membership.get();
+            if (current.participants().contains(participantId)) {
                 log.info("User {} failed to join meeting {} (Already joined)", participantId, meetingId);
                 return MeetingJoinResult.ALREADY_JOINED;
-            } else {
-                if (participants.size() < MAX_CAPACITY) {
-                    log.info("User {} successfully joined meeting {}", participantId, meetingId);
-                    participants.add(participantId);
-                    if (onParticipantAdded != null) {
-                        onParticipantAdded.accept(participantId);
-                    }
-                    return MeetingJoinResult.SUCCESS;
-                } else {
-                    log.info("User {} failed to join meeting {} (Meeting full)", participantId, meetingId);
-                    return MeetingJoinResult.MEETING_FULL;
-                }
+            }
+            if (current.participants().size() >= capacity) {
+                log.info("User {} failed to join meeting {} (Meeting full)", participantId, meetingId);
+                return MeetingJoinResult.MEETING_FULL;
+            }
+            Set<String> next = new HashSet<>(current.participants());
+            next.add(participantId);
+            if (membership.compareAndSet(current, new Membership(Set.copyOf(next), current.lastLeaveTimestamp(), current.epoch()))) {
+                break;
             }
         }
+
+        log.info("User {} successfully joined meeting {}", participantId, meetingId);
+        onParticipantAdded.forEach(c -> c.accept(participantId));
+        return MeetingJoinResult.SUCCESS;
     }
 
     public void removeParticipant(String participantId) {
-        synchronized (participants) {
-            if (participants.remove(participantId)) {
-                log.info("User {} removed from meeting {}", participantId, meetingId);
-                this.lastLeaveTimestamp = Instant.now();
-                if (onParticipantRemoved != null) {
-                    onParticipantRemoved.accept(participantId);
-                }
+        Set<String> next;
+        while (true) {
+            Membership current = membership.get();
+            if (!current.participants().contains(participantId)) {
+                return;
+            }
+            next = new HashSet<>(current.participants());
+            next.remove(participantId);
+            if (membership.compareAndSet(current, new Membership(Set.copyOf(next), Instant.now(), current.epoch() + 1))) {
+                break;
             }
         }
 
+        log.info("User {} removed from meeting {}", participantId, meetingId);
+        onParticipantRemoved.forEach(c -> c.accept(participantId));
+        Runnable emptied = onEmptied;
+        if (next.isEmpty() && emptied != null) {
+            emptied.run();
+        }
+
     }
 
     public boolean isStale() {
-        return this.participants.isEmpty() && this.lastLeaveTimestamp.isBefore(Instant.now().minus(Duration.ofMinutes(10)));
+        Membership current = membership.get();
+        return current.participants().isEmpty() && !current.lastLeaveTimestamp().plus(STALE_AFTER).isAfter(Instant.now());
     }
 
+    // when the meeting counts as stale if nobody joins until then
+    public Instant getStaleAt() {
+        return membership.get().lastLeaveTimestamp().plus(STALE_AFTER);
+    }
+
+
+    public void addOnParticipantAdded(Consumer<String> onParticipantAdded) {
+        this.onParticipantAdded.add(onParticipantAdded);
+    }
+
+    public void addOnParticipantRemoved(Consumer<String> onParticipantRemoved) {
+        this.onParticipantRemoved.add(onParticipantRemoved);
+    }
+
+    public void setOnEmptied(Runnable onEmptied) {
+        this.onEmptied = onEmptied;
+    }
+
+    public long nextRosterVersion() {
+        return rosterVersion.incrementAndGet();
+    }
+
+    public long getRosterVersion() {
+        return rosterVersion.get();
+    }
+
+    // the current epoch if userId is a participant, -1 otherwise. a participant at checkedEpoch is still one
+    // while nobody was removed, so only then are the participants looked at. both from the same snapshot,
+    // a removal is never seen in one and missed in the other (see MeetingWebSocketHandler.validateSession)
+    public long checkMembership(String userId, long checkedEpoch) {
+        Membership current = membership.get();
+        if (current.epoch() == checkedEpoch || current.participants().contains(userId)) {
+            return current.epoch();
+        }
+        return -1;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
 
-    public void setOnParticipantAdded(Consumer<String> onParticipantAdded) {
-        this.onParticipantAdded = onParticipantAdded;
+    public int getCapacity() {
+        return capacity;
     }
 
-    public void setOnParticipantRemoved(Consumer<String> onParticipantRemoved) {
-        this.onParticipantRemoved = onParticipantRemoved;
+    public boolean isLargeRoom() {
+        return largeRoom;
     }
 
     public String getMeetingId() {
         return this.meetingId;
     }
 
+    // immutable snapshot
     public Set<String> getParticipants() {
-        return participants;
+        return membership.get().participants();
     }
 
 
@@ -3,11 +3,11 @@ package com.demo.webrtc;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import javax.naming.LimitExceededException;
 import java.util.*;
 
 @RestController
@@ -17,18 +17,32 @@ public class MeetingController {
     private static final Logger log = LoggerFactory.getLogger(MeetingController.class);
 
     private final MeetingService meetingService;
+    private final RequestRateLimiter rateLimiter;
+    private final DrainCoordinator drainCoordinator;
 
-    public MeetingController(MeetingService meetingService) {
+    public MeetingController(MeetingService meetingService, RequestRateLimiter rateLimiter, DrainCoordinator drainCoordinator) {
         this.meetingService = meetingService;
+        this.rateLimiter = rateLimiter;
+        this.drainCoordinator = drainCoordinator;
+    }
+
+    private static ResponseEntity<String> tooManyRequests(long retryAfterSeconds, String body) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(body);
     }
 
 
     @PostMapping("/{meetingId}/join")
     public ResponseEntity<String> joinMeeting(@PathVariable String meetingId, HttpServletRequest request) {
         if (request.getAttribute("userId") instanceof String userId) {
-            Optional<Meeting> meeting = meetingService.getMeeting(meetingId);
-            if (meeting.isPresent()) {
-                MeetingJoinResult res = meeting.get().addParticipant(userId);
+            long retryAfter = rateLimiter.checkJoin(userId, request);
+            if (retryAfter > 0) {
+                log.warn("UserId {} failed to join meeting {} (rate limited)", userId, meetingId);
+                return tooManyRequests(retryAfter, "Too many join attempts.");
+            }
+            MeetingJoinResult res = meetingService.joinMeeting(meetingId, userId);
+            if (res != null) {
                 switch (res) {
                     case SUCCESS -> {
                         return ResponseEntity.ok().body("Joined successfully");
@@ -53,8 +67,7 @@ public class MeetingController {
 
     @GetMapping("/{meetingId}/checkIfExists")
     public ResponseEntity<String> checkIfExists(@PathVariable String meetingId, HttpServletRequest request) {
-        Optional<Meeting> meeting = meetingService.getMeeting(meetingId);
-        if (meeting.isPresent()) {
+        if (meetingService.meetingExists(meetingId)) {
             return ResponseEntity.ok("Meeting " + meetingId + " exists.");
         } else {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Meeting " + meetingId + " does not exist.");
@@ -63,13 +76,23 @@ public class MeetingController {
 
 
     @PostMapping("/create")
-    public ResponseEntity<String> createMeeting(HttpServletRequest request) {
+    public ResponseEntity<String> createMeeting(@RequestParam(required = false) Integer capacity, HttpServletRequest request) {
         if (request.getAttribute("userId") instanceof String userId) {
+            if (drainCoordinator.isDraining()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .body("Server restarting, try again in a few seconds.");
+            }
+            long retryAfter = rateLimiter.checkCreate(userId, request);
+            if (retryAfter > 0) {
+                log.warn("UserId {} failed to create meeting (rate limited)", userId);
+                return tooManyRequests(retryAfter, "Meeting creation limit exceeded.");
+            }
             try {
-                Meeting meeting = meetingService.createMeeting(userId);
+                Meeting meeting = meetingService.createMeeting(userId, capacity != null ? capacity : Meeting.DEFAULT_CAPACITY);
                 return ResponseEntity.ok(meeting.getMeetingId());
-            } catch (LimitExceededException e) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Meeting creation limit exceeded.");
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
             }
         } else {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
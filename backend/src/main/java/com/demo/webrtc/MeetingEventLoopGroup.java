@@ -0,0 +1,61 @@
+package com.demo.webrtc;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// fixed set of single threaded loops shared by all meetings
+// every meeting is pinned to one loop (by meetingId hash), so tasks of one meeting still run in submission order
+// stays on platform threads with virtual threads enabled: the loops never block and a loop has to keep its order
+@Component
+public class MeetingEventLoopGroup {
+
+    private static final Logger log = LoggerFactory.getLogger(MeetingEventLoopGroup.class);
+
+    private final ScheduledThreadPoolExecutor[] loops;
+
+    public MeetingEventLoopGroup(@Value("${app.meeting.event-loops:0}") int size) {
+        int n = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.loops = new ScheduledThreadPoolExecutor[n];
+        AtomicInteger counter = new AtomicInteger(0);
+        for (int i = 0; i < n; i++) {
+            // not Executors.newSingleThreadScheduledExecutor, which hides the queue (see getQueuedTasks)
+            loops[i] = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "meeting-loop-" + counter.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        log.info("Started {} meeting event loops", n);
+    }
+
+    public ScheduledExecutorService loopFor(String meetingId) {
+        return loops[Math.floorMod(meetingId.hashCode(), loops.length)];
+    }
+
+    public int size() {
+        return loops.length;
+    }
+
+    // tasks waiting on all loops, including scheduled ones (roster flushes)
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (ScheduledThreadPoolExecutor loop : loops) {
+            queued += loop.getQueue().size();
+        }
+        return queued;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ScheduledThreadPoolExecutor loop : loops) {
+            loop.shutdownNow();
+        }
+    }
+}
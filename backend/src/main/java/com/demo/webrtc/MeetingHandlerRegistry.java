@@ -1,7 +1,9 @@
 package com.demo.webrtc;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -9,14 +11,28 @@ import java.util.concurrent.ConcurrentHashMap;
 public class MeetingHandlerRegistry {
 
     private final Map<String, MeetingWebSocketHandler> handlers = new ConcurrentHashMap<String, MeetingWebSocketHandler>();
-
-    public MeetingHandlerRegistry() {
+    private final MeetingEventLoopGroup eventLoopGroup;
+    private final HashedTimeoutWheel timeoutWheel;
+    private final SessionOutboxFactory outboxFactory;
+    private final SignalingMetrics metrics;
+    private final long rosterFlushMillis;
+
+    public MeetingHandlerRegistry(MeetingEventLoopGroup eventLoopGroup, HashedTimeoutWheel timeoutWheel,
+                                  SessionOutboxFactory outboxFactory, SignalingMetrics metrics,
+                                  @Value("${app.meeting.roster-flush-ms:50}") long rosterFlushMillis) {
+        this.eventLoopGroup = eventLoopGroup;
+        this.timeoutWheel = timeoutWheel;
+        this.outboxFactory = outboxFactory;
+        this.metrics = metrics;
+        this.rosterFlushMillis = rosterFlushMillis;
     }
 
 
     // MeetingService manages meeting+handler lifetime, only call register/unregister from there
     public void registerHandler(@NonNull Meeting meeting) {
-        handlers.put(meeting.getMeetingId(), new MeetingWebSocketHandler(meeting));
+        MeetingWebSocketHandler handler = new MeetingWebSocketHandler(meeting, eventLoopGroup.loopFor(meeting.getMeetingId()),
+                timeoutWheel, outboxFactory, metrics, rosterFlushMillis);
+        handlers.put(meeting.getMeetingId(), handler);
     }
 
 
@@ -32,6 +48,10 @@ public class MeetingHandlerRegistry {
         return handlers.get(meetingId);
     }
 
+    public Collection<MeetingWebSocketHandler> all() {
+        return handlers.values();
+    }
+
 
 
 }
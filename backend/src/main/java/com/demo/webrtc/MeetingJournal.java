@@ -0,0 +1,322 @@
+package com.demo.webrtc;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// append only log of meetings and their participants in a memory mapped file, replayed on startup so a restart
+// keeps the meetings (see MeetingService). callers only enqueue, one writer thread appends the queued entries
+// every flush interval and compacts the file (rewrites the live state) once it is half full
+// record layout: int length, byte type, fields (strings as short length + utf-8). a length of 0 ends the log
+@Component
+public class MeetingJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MeetingJournal.class);
+
+    private static final int MAGIC = 0x4d4a4e31; // "MJN1"
+    private static final int HEADER_BYTES = 4;
+
+    private static final byte CREATE = 1;
+    private static final byte JOIN = 2;
+    private static final byte LEAVE = 3;
+    private static final byte DELETE = 4;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private record Entry(byte type, String meetingId, String userId, int capacity, boolean largeRoom) {}
+
+    public record RestoredMeeting(String meetingId, String owner, int capacity, boolean largeRoom, Set<String> participants) {}
+
+    // live state as of the last written entry, writer thread only (and the constructor before it starts)
+    private static class JournaledMeeting {
+        final String owner;
+        final int capacity;
+        final boolean largeRoom;
+        final Set<String> participants = new LinkedHashSet<>();
+
+        JournaledMeeting(String owner, int capacity, boolean largeRoom) {
+            this.owner = owner;
+            this.capacity = capacity;
+            this.largeRoom = largeRoom;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path path;
+    private final Map<String, JournaledMeeting> state = new LinkedHashMap<>();
+    private final List<RestoredMeeting> restored = new ArrayList<>();
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService writer;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private MappedByteBuffer buffer;
+
+    public MeetingJournal(@Value("${app.journal.enabled:false}") boolean enabled,
+                          @Value("${app.journal.path:data/meetings.journal}") String path,
+                          @Value("${app.journal.size-bytes:16777216}") int sizeBytes,
+                          @Value("${app.journal.flush-ms:20}") long flushMillis) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        if (!enabled) {
+            this.writer = null;
+            return;
+        }
+        try {
+            if (this.path.getParent() != null) {
+                Files.createDirectories(this.path.getParent());
+            }
+            long start = System.nanoTime();
+            boolean existed = Files.exists(this.path) && Files.size(this.path) > HEADER_BYTES;
+            buffer = map(this.path, Math.max(sizeBytes, existed ? (int) Files.size(this.path) : 0));
+            if (existed && buffer.getInt(0) == MAGIC) {
+                replay();
+            }
+            state.forEach((id, m) -> restored.add(new RestoredMeeting(id, m.owner, m.capacity, m.largeRoom, Set.copyOf(m.participants))));
+            compact(); // start from the live state only, also drops a torn last record
+            log.info("Journal {}: restored {} meetings in {} ms", this.path, restored.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open meeting journal " + this.path, e);
+        }
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // meetings from before the restart (empty if the journal is disabled)
+    public List<RestoredMeeting> restore() {
+        return restored;
+    }
+
+    public void meetingCreated(Meeting meeting) {
+        append(new Entry(CREATE, meeting.getMeetingId(), meeting.getOwner(), meeting.getCapacity(), meeting.isLargeRoom()));
+    }
+
+    public void meetingDeleted(String meetingId) {
+        append(new Entry(DELETE, meetingId, null, 0, false));
+    }
+
+    // membership listeners run outside of any Meeting lock and may race (see Meeting), checking the current state
+    // and enqueueing under one lock per meeting makes the last entry per user match the final state
+    // (striped ReentrantLocks, the listeners run on request threads which may be virtual)
+    public void participantJoined(Meeting meeting, String userId) {
+        ReentrantLock lock = lockFor(meeting);
+        lock.lock();
+        try {
+            if (meeting.getParticipants().contains(userId)) {
+                append(new Entry(JOIN, meeting.getMeetingId(), userId, 0, false));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void participantLeft(Meeting meeting, String userId) {
+        ReentrantLock lock = lockFor(meeting);
+        lock.lock();
+        try {
+            if (!meeting.getParticipants().contains(userId)) {
+                append(new Entry(LEAVE, meeting.getMeetingId(), userId, 0, false));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Meeting meeting) {
+        return locks[Math.floorMod(meeting.getMeetingId().hashCode(), LOCK_STRIPES)];
+    }
+
+    private void append(Entry entry) {
+        if (enabled) {
+            pending.add(entry);
+        }
+    }
+
+    // writer thread
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            Entry entry;
+            while ((entry = pending.poll()) != null) {
+                if (buffer.remaining() < encodedSize(entry) + 4) {
+                    compact();
+                }
+                write(buffer, entry);
+                apply(entry);
+            }
+            buffer.putInt(buffer.position(), 0);
+            buffer.force();
+            if (buffer.position() > buffer.capacity() / 2) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write meeting journal {}", path, e);
+        }
+    }
+
+    // rewrites the live state into a fresh file (twice as big if the state alone fills half of it)
+    // and swaps it in atomically, a crash in between leaves the old journal
+    private void compact() throws IOException {
+        List<Entry> live = new ArrayList<>();
+        int bytes = HEADER_BYTES + 4;
+        for (Map.Entry<String, JournaledMeeting> e : state.entrySet()) {
+            JournaledMeeting m = e.getValue();
+            live.add(new Entry(CREATE, e.getKey(), m.owner, m.capacity, m.largeRoom));
+            m.participants.forEach(u -> live.add(new Entry(JOIN, e.getKey(), u, 0, false)));
+        }
+        for (Entry entry : live) {
+            bytes += encodedSize(entry);
+        }
+        int size = buffer.capacity();
+        while (bytes > size / 2) {
+            size *= 2;
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        MappedByteBuffer next = map(tmp, size);
+        next.putInt(MAGIC);
+        for (Entry entry : live) {
+            write(next, entry);
+        }
+        next.putInt(next.position(), 0);
+        next.force();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        buffer = next; // the old mapping goes away with the garbage collector
+    }
+
+    private void replay() {
+        buffer.position(HEADER_BYTES);
+        try {
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > buffer.remaining() - 4) {
+                    break;
+                }
+                buffer.position(buffer.position() + 4);
+                byte type = buffer.get();
+                String meetingId = readString(buffer);
+                Entry entry = switch (type) {
+                    case CREATE -> new Entry(CREATE, meetingId, readString(buffer), buffer.getInt(), buffer.get() == 1);
+                    case JOIN, LEAVE -> new Entry(type, meetingId, readString(buffer), 0, false);
+                    case DELETE -> new Entry(DELETE, meetingId, null, 0, false);
+                    default -> null;
+                };
+                if (entry == null) {
+                    break;
+                }
+                apply(entry);
+            }
+        } catch (BufferUnderflowException e) {
+            log.warn("Journal {} ends in a torn record, ignored", path);
+        }
+    }
+
+    private void apply(Entry entry) {
+        switch (entry.type()) {
+            case CREATE -> state.put(entry.meetingId(), new JournaledMeeting(entry.userId(), entry.capacity(), entry.largeRoom()));
+            case JOIN -> {
+                JournaledMeeting m = state.get(entry.meetingId());
+                if (m != null) {
+                    m.participants.add(entry.userId());
+                }
+            }
+            case LEAVE -> {
+                JournaledMeeting m = state.get(entry.meetingId());
+                if (m != null) {
+                    m.participants.remove(entry.userId());
+                }
+            }
+            case DELETE -> state.remove(entry.meetingId());
+            default -> throw new IllegalStateException("Unknown journal entry " + entry.type());
+        }
+    }
+
+    private static int encodedSize(Entry entry) {
+        int size = 4 + 1 + 2 + utf8Length(entry.meetingId());
+        if (entry.type() != DELETE) {
+            size += 2 + utf8Length(entry.userId());
+        }
+        if (entry.type() == CREATE) {
+            size += 4 + 1;
+        }
+        return size;
+    }
+
+    private static void write(MappedByteBuffer buffer, Entry entry) {
+        buffer.putInt(encodedSize(entry) - 4);
+        buffer.put(entry.type());
+        writeString(buffer, entry.meetingId());
+        if (entry.type() != DELETE) {
+            writeString(buffer, entry.userId());
+        }
+        if (entry.type() == CREATE) {
+            buffer.putInt(entry.capacity());
+            buffer.put((byte) (entry.largeRoom() ? 1 : 0));
+        }
+    }
+
+    private static int utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeString(MappedByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    // writes what is still queued, meetings survive a normal shutdown completely
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,148 @@
+package com.demo.webrtc;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// who is in the meeting and whether they are connected to signaling, versioned by Meeting.nextRosterVersion()
+// changes are collected as small deltas until the next flush, full snapshots are built at most once per version
+public class MeetingRoster {
+
+    public static final String JOINED = "joined";
+    public static final String LEFT = "left";
+    public static final String CONNECTED = "connected";
+    public static final String DISCONNECTED = "disconnected";
+
+    private final Meeting meeting;
+
+    // everything below guarded by lock (not a monitor, record() runs on request threads which may be virtual)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Boolean> connected = new LinkedHashMap<>();
+    private final List<RosterChange> pendingChanges = new ArrayList<>();
+    private long pendingBaseVersion;
+    private OutboundMessage cachedSnapshot;
+    private long cachedSnapshotVersion = -1;
+
+    public MeetingRoster(Meeting meeting) {
+        this.meeting = meeting;
+        this.pendingBaseVersion = meeting.getRosterVersion();
+    }
+
+    public void record(String userId, String event) {
+        lock.lock();
+        try {
+            // membership events can be published out of order (see Meeting), only apply them if they still hold
+            boolean member = meeting.getParticipants().contains(userId);
+            if ((event.equals(JOINED) && !member) || (event.equals(LEFT) && member)) {
+                return;
+            }
+            switch (event) {
+                case JOINED -> connected.put(userId, false);
+                case LEFT -> connected.remove(userId);
+                case CONNECTED -> connected.computeIfPresent(userId, (u, c) -> true);
+                case DISCONNECTED -> connected.computeIfPresent(userId, (u, c) -> false);
+                default -> throw new IllegalArgumentException("Unknown roster event " + event);
+            }
+            meeting.nextRosterVersion();
+            pendingChanges.add(new RosterChange(userId, event));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // takes the pending changes, delta is null if there were none
+    public Flush drain() {
+        lock.lock();
+        try {
+            long base = pendingBaseVersion;
+            long version = meeting.getRosterVersion();
+            OutboundMessage delta = null;
+            if (!pendingChanges.isEmpty()) {
+                delta = new OutboundMessage(Map.of("kind", "rosterDelta", "base", base, "version", version,
+                        "changes", List.copyOf(pendingChanges)));
+                pendingChanges.clear();
+                pendingBaseVersion = version;
+            }
+            return new Flush(base, version, delta, snapshot().message());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // large rooms: only the changes, every session gets a delta filtered by its subscriptions
+    public Changes drainChanges() {
+        lock.lock();
+        try {
+            long version = meeting.getRosterVersion();
+            List<RosterChange> changes = List.copyOf(pendingChanges);
+            pendingChanges.clear();
+            pendingBaseVersion = version;
+            return new Changes(version, changes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the roster restricted to some users (large room subscriptions), not cached
+    public Snapshot snapshotOf(Set<String> userIds) {
+        lock.lock();
+        try {
+            Map<String, Boolean> subset = new LinkedHashMap<>();
+            for (String userId : userIds) {
+                Boolean c = connected.get(userId);
+                if (c != null) {
+                    subset.put(userId, c);
+                }
+            }
+            long version = meeting.getRosterVersion();
+            return new Snapshot(version, new OutboundMessage(Map.of("kind", "info", "version", version, "connected", subset)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // one page of the roster in join order, for clients of large rooms to find peers
+    // "rosterPage" instead of "info" since it does not replace the client's roster
+    public OutboundMessage page(int offset, int limit) {
+        lock.lock();
+        try {
+            Map<String, Boolean> page = new LinkedHashMap<>();
+            int i = 0;
+            for (Map.Entry<String, Boolean> e : connected.entrySet()) {
+                if (i >= offset + limit) {
+                    break;
+                }
+                if (i++ >= offset) {
+                    page.put(e.getKey(), e.getValue());
+                }
+            }
+            return new OutboundMessage(Map.of("kind", "rosterPage", "version", meeting.getRosterVersion(),
+                    "offset", offset, "total", connected.size(), "connected", page));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            long version = meeting.getRosterVersion();
+            if (cachedSnapshot == null || cachedSnapshotVersion != version) {
+                // copied, the message is encoded lazily (once per codec) while the roster keeps changing
+                cachedSnapshot = new OutboundMessage(Map.of("kind", "info", "version", version,
+                        "connected", new LinkedHashMap<>(connected)));
+                cachedSnapshotVersion = version;
+            }
+            return new Snapshot(version, cachedSnapshot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record RosterChange(String userId, String event) {}
+
+    public record Flush(long base, long version, OutboundMessage delta, OutboundMessage snapshot) {}
+
+    public record Snapshot(long version, OutboundMessage message) {}
+
+    public record Changes(long version, List<RosterChange> changes) {}
+}
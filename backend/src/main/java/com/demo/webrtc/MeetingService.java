@@ -2,14 +2,18 @@ package com.demo.webrtc;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.naming.LimitExceededException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class MeetingService {
@@ -18,26 +22,82 @@ public class MeetingService {
 
     private final Map<String, Meeting> meetings = new ConcurrentHashMap<>();
     private final MeetingHandlerRegistry meetingHandlerRegistry;
-    private final AtomicInteger meetingsCreatedInLastMinute = new AtomicInteger(0);
+    // empty meetings are indexed by their stale deadline, nothing else is ever looked at for cleanup
+    private final HashedTimeoutWheel timeoutWheel;
+    private final Map<String, HashedTimeoutWheel.Timeout> expiryTimeouts = new ConcurrentHashMap<>();
 
-    public MeetingService(MeetingHandlerRegistry meetingHandlerRegistry) {
+    private final ClusterNode clusterNode;
+    private final MeetingJournal journal;
+    private static final long CLUSTER_REQUEST_TIMEOUT_MS = 2000;
+
+    private final int maxCapacity;
+    private final int largeRoomThreshold;
+
+    public MeetingService(MeetingHandlerRegistry meetingHandlerRegistry, HashedTimeoutWheel timeoutWheel, ClusterNode clusterNode,
+                          MeetingJournal journal,
+                          @Value("${app.meeting.max-capacity:500}") int maxCapacity,
+                          @Value("${app.meeting.large-room-threshold:16}") int largeRoomThreshold) {
         this.meetingHandlerRegistry = meetingHandlerRegistry;
+        this.timeoutWheel = timeoutWheel;
+        this.clusterNode = clusterNode;
+        clusterNode.setRequestHandler(this::handleClusterRequest);
+        this.maxCapacity = maxCapacity;
+        this.largeRoomThreshold = largeRoomThreshold;
+        this.journal = journal;
+        restoreMeetings();
     }
 
-    @Scheduled(fixedRate = 60000)
-    public void resetLimit() {
-        meetingsCreatedInLastMinute.set(0);
+    // meetings and participants from before a restart (see MeetingJournal). participants get the usual grace
+    // period to reconnect, the handler schedules their timeouts as if they had just joined
+    private void restoreMeetings() {
+        for (MeetingJournal.RestoredMeeting r : journal.restore()) {
+            if (!clusterNode.isLocal(r.meetingId())) {
+                log.warn("Not restoring meeting {}, owned by node {} now", r.meetingId(), clusterNode.ownerOf(r.meetingId()));
+                journal.meetingDeleted(r.meetingId());
+                continue;
+            }
+            Meeting m = new Meeting(r.meetingId(), r.owner(), r.capacity(), r.largeRoom());
+            meetingHandlerRegistry.registerHandler(m);
+            r.participants().forEach(m::addParticipant);
+            track(m, false);
+            meetings.put(m.getMeetingId(), m);
+            log.info("Restored meeting {} with {} participants", m.getMeetingId(), r.participants().size());
+        }
     }
 
-    public Meeting createMeeting(String userId) throws LimitExceededException {
-        if (meetingsCreatedInLastMinute.incrementAndGet() > 100) {
-            // simple abuse protection, should handle by IP or something like that for a "real" project
-            log.warn("UserId {} failed to create meeting (limit exceeded)", userId);
-            throw new LimitExceededException();
+    // journal and stale meeting expiry, restored meetings are in the journal already
+    // before the meeting is put in meetings, once it is there it can be joined and left concurrently
+    private void track(Meeting m, boolean journalCreate) {
+        if (journalCreate) {
+            journal.meetingCreated(m);
+        }
+        m.addOnParticipantAdded(userId -> journal.participantJoined(m, userId));
+        m.addOnParticipantRemoved(userId -> journal.participantLeft(m, userId));
+        m.setOnEmptied(() -> scheduleExpiry(m));
+        if (m.getParticipants().isEmpty()) {
+            scheduleExpiry(m);
         }
+    }
+
+    public Meeting createMeeting(String userId) {
+        return createMeeting(userId, Meeting.DEFAULT_CAPACITY);
+    }
 
-        Meeting m = new Meeting(userId);
+    // meetings above the large room threshold use subscription based roster updates (see Meeting.isLargeRoom)
+    public Meeting createMeeting(String userId, int capacity) {
+        if (capacity < 1 || capacity > maxCapacity) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + maxCapacity);
+        }
+
+        // pick an id this node owns, so creating never has to go through the cluster (n tries on average for n nodes)
+        String meetingId;
+        do {
+            meetingId = UUID.randomUUID().toString();
+        } while (!clusterNode.isLocal(meetingId));
+
+        Meeting m = new Meeting(meetingId, userId, capacity, capacity > largeRoomThreshold);
         meetingHandlerRegistry.registerHandler(m);
+        track(m, true);
         meetings.put(m.getMeetingId(), m);
         log.info("UserId {} created meeting {}", userId, m.getMeetingId());
         return m;
@@ -48,6 +108,11 @@ public class MeetingService {
         Meeting m = meetings.remove(meetingId);
         if (m != null) {
             meetingHandlerRegistry.unregisterHandler(meetingId);
+            journal.meetingDeleted(meetingId);
+        }
+        HashedTimeoutWheel.Timeout timeout = expiryTimeouts.remove(meetingId);
+        if (timeout != null) {
+            timeout.cancel();
         }
     }
 
@@ -55,6 +120,53 @@ public class MeetingService {
         return Optional.ofNullable(meetings.get(meetingId));
     }
 
+    // null if the meeting does not exist. meetings owned by another node are joined there
+    public MeetingJoinResult joinMeeting(String meetingId, String userId) {
+        if (!clusterNode.isLocal(meetingId)) {
+            String reply = askOwner(ClusterMessage.Type.JOIN, meetingId, userId);
+            return reply == null || reply.isEmpty() ? null : MeetingJoinResult.valueOf(reply);
+        }
+        return joinLocal(meetingId, userId);
+    }
+
+    private MeetingJoinResult joinLocal(String meetingId, String userId) {
+        Meeting meeting = meetings.get(meetingId);
+        return meeting != null ? meeting.addParticipant(userId) : null;
+    }
+
+    public boolean meetingExists(String meetingId) {
+        if (!clusterNode.isLocal(meetingId)) {
+            return Boolean.parseBoolean(askOwner(ClusterMessage.Type.EXISTS, meetingId, null));
+        }
+        return meetings.containsKey(meetingId);
+    }
+
+    private String askOwner(ClusterMessage.Type type, String meetingId, String userId) {
+        try {
+            return clusterNode.request(type, meetingId, userId).get(CLUSTER_REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("No answer from node {} for {} on meeting {}", clusterNode.ownerOf(meetingId), type, meetingId);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // runs on the bus thread, JOIN/EXISTS from other nodes for meetings owned here. answered from the meetings
+    // on this node only, even if the ring says otherwise: asking on would block the bus thread that has to
+    // deliver the reply (and bounce between nodes whose rings disagree)
+    private String handleClusterRequest(ClusterMessage request) {
+        return switch (request.type()) {
+            case JOIN -> {
+                MeetingJoinResult result = joinLocal(request.meetingId(), request.userId());
+                yield result != null ? result.name() : "";
+            }
+            case EXISTS -> String.valueOf(meetings.containsKey(request.meetingId()));
+            default -> null;
+        };
+    }
+
     public boolean addUserToMeeting(String meetingId, String userId) {
         Optional<Meeting> m = getMeeting(meetingId);
         if (m.isPresent()) {
@@ -66,14 +178,29 @@ public class MeetingService {
         }
     }
 
-    @Scheduled(fixedRate = 60000)
-    public void clearStaleMeetings() {
-        meetings.values().forEach(meeting -> {
-            if (meeting.isStale()) {
-                log.info("Deleting stale meeting {}", meeting.getMeetingId());
-                deleteMeeting(meeting.getMeetingId());
-            }
-        });
+    // called whenever the meeting becomes empty, replaces the previous deadline
+    private void scheduleExpiry(Meeting meeting) {
+        long delay = Math.max(0, Duration.between(Instant.now(), meeting.getStaleAt()).toMillis());
+        HashedTimeoutWheel.Timeout timeout = timeoutWheel.schedule(() -> expire(meeting), delay, TimeUnit.MILLISECONDS);
+        HashedTimeoutWheel.Timeout previous = expiryTimeouts.put(meeting.getMeetingId(), timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    // runs on the wheel thread, cheap since nobody is connected to an empty meeting
+    private void expire(Meeting meeting) {
+        if (!meeting.getParticipants().isEmpty()) {
+            // someone joined in the meantime, scheduled again once it is empty
+            return;
+        }
+        if (meeting.isStale()) {
+            log.info("Deleting stale meeting {}", meeting.getMeetingId());
+            deleteMeeting(meeting.getMeetingId());
+        } else {
+            // left and joined again in the meantime, deadline moved
+            scheduleExpiry(meeting);
+        }
     }
 
 
@@ -3,47 +3,69 @@ package com.demo.webrtc;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 import tools.jackson.core.JacksonException;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
-public class MeetingWebSocketHandler extends TextWebSocketHandler {
+public class MeetingWebSocketHandler extends AbstractWebSocketHandler {
 
     private static final Logger log = LoggerFactory.getLogger(MeetingWebSocketHandler.class);
 
     private final String meetingId;
     private final Meeting meeting;
 
-    private boolean isClosed = false;
+    private volatile boolean isClosed = false;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<String, WebSocketSession>();
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // shared with other meetings (see MeetingEventLoopGroup), never shut down from here
+    private final ScheduledExecutorService executor;
+    private final HashedTimeoutWheel timeoutWheel;
+    private final Map<String, HashedTimeoutWheel.Timeout> pendingTimeouts = new ConcurrentHashMap<>();
+    private final SessionOutboxFactory outboxFactory;
+    private final SignalingMetrics metrics;
 
-    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
-    private final Map<String, ScheduledFuture<?>> pendingTimeouts = new ConcurrentHashMap<>();
+    // roster changes only mark the roster dirty, one flush per interval broadcasts the latest state
+    private final long rosterFlushMillis;
+    private final AtomicBoolean rosterFlushScheduled = new AtomicBoolean(false);
+    private final MeetingRoster roster;
 
+    // large rooms: userId -> sessions subscribed to that user's roster changes (see SubscribeMessage), event loop only
+    private final Map<String, Set<WebSocketSession>> subscribers = new HashMap<>();
 
 
-    public MeetingWebSocketHandler(Meeting meeting) {
+    public MeetingWebSocketHandler(Meeting meeting, ScheduledExecutorService executor, HashedTimeoutWheel timeoutWheel,
+                                   SessionOutboxFactory outboxFactory, SignalingMetrics metrics, long rosterFlushMillis) {
         this.meeting = meeting;
         this.meetingId = meeting.getMeetingId();
+        this.executor = executor;
+        this.timeoutWheel = timeoutWheel;
+        this.outboxFactory = outboxFactory;
+        this.metrics = metrics;
+        this.rosterFlushMillis = rosterFlushMillis;
+        this.roster = new MeetingRoster(meeting);
         log.info("[Meeting {}] created WS handler", meetingId);
-        meeting.setOnParticipantAdded(this::handleParticipantAdded);
-        meeting.setOnParticipantRemoved(this::handleParticipantRemoved);
+        meeting.addOnParticipantAdded(this::handleParticipantAdded);
+        meeting.addOnParticipantRemoved(this::handleParticipantRemoved);
     }
 
+    // membership callbacks run outside of any Meeting lock and may arrive out of order for concurrent
+    // changes, stale events (membership already changed back) are ignored
     public void handleParticipantAdded(String userId){
+        if (!meeting.getParticipants().contains(userId)) {
+            return;
+        }
         sessions.compute(userId, (u, s) -> {
             if (s == null) {
                 scheduleTimeout(userId);
@@ -52,10 +74,14 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
                 return s;
             }
         });
-        executor.submit(this::broadcastCurrentUsers);
+        roster.record(userId, MeetingRoster.JOINED);
+        markRosterDirty();
     }
 
     public void handleParticipantRemoved(String userId){
+        if (meeting.getParticipants().contains(userId)) {
+            return;
+        }
         WebSocketSession session = sessions.remove(userId);
         if (session != null) {
             try {
@@ -64,38 +90,83 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
                 //
             }
         }
-        ScheduledFuture<?> scheduledFuture = pendingTimeouts.remove(userId);
-        if (scheduledFuture != null) {
-            scheduledFuture.cancel(false);
+        HashedTimeoutWheel.Timeout timeout = pendingTimeouts.remove(userId);
+        if (timeout != null) {
+            timeout.cancel();
         }
-        executor.submit(this::broadcastCurrentUsers);
+        roster.record(userId, MeetingRoster.LEFT);
+        markRosterDirty();
     }
 
-    public void queueSendMessage(WebSocketSession session, TextMessage message) {
+    // receivedNanos/parsedNanos: when the frame carrying the signal(s) came in and was decoded, see RelayTrace
+    public void queueSendMessage(WebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message,
+                                 String kind, long receivedNanos, long parsedNanos) {
+        RelayTrace trace = new RelayTrace(metrics, receivedNanos, parsedNanos);
         executor.submit(() -> {
-            if(sessions.containsValue(session) && session.isOpen()) {
-                try {
-                    session.sendMessage(message);
-                } catch (Exception e) {
-                    // probably not meaningful to log? i dont this is preventable or recoverable?
-                }
+            trace.dequeued();
+            SessionContext ctx = SessionContext.of(session);
+            if (isCurrentSession(session, ctx)) {
+                offerRelayed(ctx, message, kind, trace);
             }
         });
     }
 
+    // recipients that asked for traces (see SessionContext.isTraced) get the server side hops stamped on the
+    // signals, so these are encoded on the event loop, once the time spent waiting there is known
+    private void queueTracedMessage(WebSocketSession session, WebSocketMessage message, List<SignalingMessage> signals,
+                                    String kind, long receivedNanos, long parsedNanos) {
+        RelayTrace trace = new RelayTrace(metrics, receivedNanos, parsedNanos);
+        executor.submit(() -> {
+            trace.dequeued();
+            SessionContext ctx = SessionContext.of(session);
+            if (!isCurrentSession(session, ctx)) {
+                return;
+            }
+            RelayTrace.Stamp stamp = trace.stamp();
+            signals.forEach(sig -> sig.setTrace(stamp));
+            try {
+                offerRelayed(ctx, ctx.getCodec().encode(message), kind, trace);
+            } catch (JacksonException e) {
+                log.error("[Meeting {}] Failed to serialize traced {} message", meetingId, kind);
+            }
+        });
+    }
+
+    private void offerRelayed(SessionContext ctx, org.springframework.web.socket.WebSocketMessage<?> message, String kind, RelayTrace trace) {
+        if (ctx.getOutbox().offer(message, trace)) {
+            metrics.outbound(kind);
+            metrics.relayed(trace.getReceivedNanos());
+        }
+    }
+
+    private boolean isTraced(WebSocketSession session) {
+        SessionContext ctx = SessionContext.of(session);
+        return ctx != null && ctx.isTraced();
+    }
+
+    // the session is the one registered for its user (not replaced or closed in the meantime)
+    private boolean isCurrentSession(WebSocketSession session, SessionContext ctx) {
+        return ctx != null && sessions.get(ctx.getUserId()) == session && session.isOpen();
+    }
+
     private boolean validateSession(WebSocketSession session) {
         try {
-            if (session.getAttributes().get("userId") instanceof String s) {
-                if (!meeting.getParticipants().contains(s)) {
-                    log.info("[Meeting {}] WSS {} failed validation: {} not in meeting", meetingId, session.getId(), s);
-                    session.close(WebSocketCloseStatus.UNAUTHORIZED.get());
-                    return false;
-                }
-            } else {
-                log.error("[Meeting {}] WSS {} failed validation: userId not in session attributes", meetingId, session.getId());
+            SessionContext ctx = SessionContext.of(session);
+            if (ctx == null) {
+                log.error("[Meeting {}] WSS {} failed validation: no session context", meetingId, session.getId());
                 session.close(WebSocketCloseStatus.SERVER_ERROR.get());
                 return false;
             }
+            // participants only need to be checked again if someone was removed since the last check
+            long epoch = meeting.checkMembership(ctx.getUserId(), ctx.getMembershipEpoch());
+            if (epoch == -1) {
+                log.info("[Meeting {}] WSS {} failed validation: {} not in meeting", meetingId, session.getId(), ctx.getUserId());
+                session.close(WebSocketCloseStatus.UNAUTHORIZED.get());
+                return false;
+            }
+            if (ctx.getMembershipEpoch() != epoch) {
+                ctx.setMembershipEpoch(epoch);
+            }
             if (this.isClosed) {
                 log.info("[Meeting {}] WSS {} failed validation: meeting/handler closed", meetingId, session.getId());
                 session.close(WebSocketCloseStatus.MEETING_ENDED.get());
@@ -114,15 +185,17 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        session.getAttributes().put("version", System.currentTimeMillis());
-        String userId = (String) session.getAttributes().get("userId");
+        SessionContext ctx = SessionContext.of(session);
+        ctx.setVersion(System.currentTimeMillis());
+        ctx.setOutbox(outboxFactory.create(session));
+        ctx.setCodec(SignalingCodec.forSubProtocol(session.getAcceptedProtocol()));
+        String userId = ctx.getUserId();
         log.info("[Meeting {}] Established new WSS {} for userId {}", meetingId, session.getId(), userId);
 
         WebSocketSession oldSession = sessions.put(userId, session);
 
         var timeout = pendingTimeouts.remove(userId);
-        if (timeout != null) {
-            timeout.cancel(false);
+        if (timeout != null && timeout.cancel()) {
             log.info("[Meeting {}] Cancelled timeout on userId {}", meetingId, userId);
         }
 
@@ -134,38 +207,119 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
             }
         }
 
-        executor.submit(this::broadcastCurrentUsers);
+        roster.record(userId, MeetingRoster.CONNECTED);
+        markRosterDirty();
+        metrics.established(ctx.getHandshakeNanos());
+    }
+
+    public void markRosterDirty() {
+        if (rosterFlushScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flushRoster, rosterFlushMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushRoster() {
+        // reset before reading the roster, a change from here on schedules another flush,
+        // so the last state is always broadcast
+        rosterFlushScheduled.set(false);
+        if (!isClosed) {
+            if (meeting.isLargeRoom()) {
+                broadcastSubscribedUsers();
+            } else {
+                broadcastCurrentUsers();
+            }
+        }
     }
 
+    // sessions that saw the state the delta is based on get the delta, everyone else the cached snapshot
     public void broadcastCurrentUsers() {
-        TextMessage msg = getUserInfoMessage(meeting.getParticipants());
-        if (msg != null) {
-            sessions.values().forEach(session -> {
-                if (session.isOpen()) {
-                    try {
-                        session.sendMessage(msg);
-                    } catch (Exception e) {
-                        //
-                        String userId = (String) session.getAttributes().get("userId");
-                        log.error("failed to send to send to session by {}. reason: {}", userId, e.getMessage());
-                    }
-                }
-            });
+        MeetingRoster.Flush flush = roster.drain();
+        sessions.values().forEach(session -> {
+            SessionContext ctx = SessionContext.of(session);
+            if (ctx == null) {
+                return;
+            }
+            long known = ctx.getRosterVersion();
+            if (known == flush.version()) {
+                return;
+            }
+            OutboundMessage msg = flush.delta() != null && known == flush.base() ? flush.delta() : flush.snapshot();
+            sendRoster(ctx, msg, flush.version());
+        });
+    }
+
+    // large rooms: sessions only hear about the users they subscribed to, and nothing if none of them changed,
+    // so a join costs O(subscribers of the joining user) instead of O(participants)
+    private void broadcastSubscribedUsers() {
+        MeetingRoster.Changes changes = roster.drainChanges();
+        Map<WebSocketSession, List<MeetingRoster.RosterChange>> bySession = new LinkedHashMap<>();
+        for (MeetingRoster.RosterChange change : changes.changes()) {
+            Set<WebSocketSession> subs = subscribers.get(change.userId());
+            if (subs != null) {
+                subs.forEach(s -> bySession.computeIfAbsent(s, k -> new ArrayList<>()).add(change));
+            }
+        }
+        bySession.forEach((session, sessionChanges) -> {
+            SessionContext ctx = SessionContext.of(session);
+            if (!isCurrentSession(session, ctx) || ctx.getRosterVersion() == changes.version()) {
+                return;
+            }
+            // based on whatever this session was sent last, changes it already saw are replayed harmlessly
+            OutboundMessage delta = new OutboundMessage(Map.of("kind", "rosterDelta", "base", ctx.getRosterVersion(),
+                    "version", changes.version(), "changes", sessionChanges));
+            sendRoster(ctx, delta, changes.version());
+        });
+    }
+
+    // event loop only
+    private void subscribe(WebSocketSession session, SessionContext ctx, Set<String> interest) {
+        unsubscribe(session, ctx);
+        interest.forEach(userId -> subscribers.computeIfAbsent(userId, u -> new HashSet<>()).add(session));
+        ctx.setInterest(interest);
+    }
+
+    // event loop only
+    private void unsubscribe(WebSocketSession session, SessionContext ctx) {
+        ctx.getInterest().forEach(userId -> {
+            Set<WebSocketSession> subs = subscribers.get(userId);
+            if (subs != null && subs.remove(session) && subs.isEmpty()) {
+                subscribers.remove(userId);
+            }
+        });
+        ctx.setInterest(Set.of());
+    }
+
+    // event loop only
+    private void sendRoster(SessionContext ctx, OutboundMessage msg, long version) {
+        var encoded = msg.encodedFor(ctx.getCodec());
+        if (encoded != null && ctx.getOutbox().offer(encoded)) {
+            ctx.setRosterVersion(version);
+            metrics.outbound(msg.getKind());
         }
     }
 
     public Long getSessionVersion(WebSocketSession session) {
-        Object o = session.getAttributes().get("version");
-        if (o instanceof Long version) {
-            return version;
-        } else if (o != null) {
-            log.error("[Meeting {}] Unexpected session version type: {} ", meetingId, o.getClass());
-        } else {
-            log.error("[Meeting {}] Session version null", meetingId);
+        SessionContext ctx = SessionContext.of(session);
+        if (ctx != null && ctx.getVersion() != null) {
+            return ctx.getVersion();
         }
+        log.error("[Meeting {}] Session version null", meetingId);
         return null;
     }
 
+    private SignalingCodec getCodec(WebSocketSession session) {
+        SessionContext ctx = SessionContext.of(session);
+        return ctx != null ? ctx.getCodec() : SignalingCodec.JSON;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getParticipantCount() {
+        return meeting.getParticipants().size();
+    }
+
     public Boolean hasActiveSession(String userId){
         WebSocketSession session = sessions.get(userId);
         return session != null && session.isOpen();
@@ -173,37 +327,36 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
 
 
 
-    public TextMessage getUserInfoMessage(Set<String> userIds) {
-        Map<String, Boolean> connectionInfo = userIds.stream()
-                .collect(Collectors.toMap(Function.identity(), this::hasActiveSession));
-
-        try {
-            return new TextMessage(objectMapper.writeValueAsString(Map.of("kind", "info", "connected", connectionInfo)));
-        } catch (JacksonException e) {
-            // i dont think this can really throw
-            log.error("[Meeting {}] failed to write userInfoMessage to json", meetingId);
-        }
-        return null;
+    public org.springframework.web.socket.WebSocketMessage<?> getUserInfoMessage() {
+        return roster.snapshot().message().encodedFor(SignalingCodec.JSON);
     }
 
     public void scheduleTimeout(String userId){
         log.info("[Meeting {}] Scheduled timeout on userId {}", meetingId, userId);
-        ScheduledFuture<?> timeout = scheduledExecutorService.schedule(() -> {
+        // the wheel thread only hands the check over to the meeting's event loop
+        HashedTimeoutWheel.Timeout timeout = timeoutWheel.schedule(() -> executor.execute(() -> {
             WebSocketSession userSession = sessions.get(userId);
             if (userSession == null || !userSession.isOpen()) {
                 log.info("[Meeting {}] Timeout fired on userId {}", meetingId, userId);
                 meeting.removeParticipant(userId);
 
             }
-        }, 30, TimeUnit.SECONDS);
-        pendingTimeouts.put(userId, timeout);
+        }), 30, TimeUnit.SECONDS);
+        HashedTimeoutWheel.Timeout previous = pendingTimeouts.put(userId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
     }
 
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
 
-        String userId = session.getAttributes().get("userId").toString();
+        SessionContext ctx = SessionContext.of(session);
+        if (ctx == null) {
+            return;
+        }
+        String userId = ctx.getUserId();
         log.info("[Meeting {}] Closed WSS {} for userId {}", meetingId, session.getId(), userId);
 
 
@@ -211,28 +364,27 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
 
         if (removed) {
             scheduleTimeout(userId);
-            executor.submit(this::broadcastCurrentUsers);
+            roster.record(userId, MeetingRoster.DISCONNECTED);
+            markRosterDirty();
+        }
+        if (meeting.isLargeRoom()) {
+            executor.execute(() -> unsubscribe(session, ctx));
         }
 
     }
 
-    public void handleSignalingMessage(WebSocketSession session, SignalingMessage message) {
-        String from = message.getFrom();
-        String to = message.getTo();
-
-
-        String fromVerified = (String) session.getAttributes().get("userId");
+    // returns the recipient's session, or null if the message has to be dropped (closes the sender on spoofing)
+    private WebSocketSession resolveSignalTarget(WebSocketSession session, String from, String to) {
+        String fromVerified = SessionContext.of(session).getUserId();
 
 
         WebSocketSession targetSession = sessions.get(to);
         if (targetSession == null) {
-            return;
+            return null;
             // todo: handle more gracefully, send "could not reach" message?
         }
 
-        Long version = getSessionVersion(session);
-
-        String toVerified = (String) targetSession.getAttributes().get("userId");
+        String toVerified = SessionContext.of(targetSession).getUserId();
 
         if (!to.equals(toVerified) || !from.equals(fromVerified)) {
             log.info("[Meeting {}] Discarded message (sender/recipient userId mismatch)", meetingId);
@@ -241,13 +393,25 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
             } catch (IOException e) {
                 //
             }
+            return null;
+        }
+        return targetSession;
+    }
+
+    public void handleSignalingMessage(WebSocketSession session, SignalingMessage message, long receivedNanos, long parsedNanos) {
+        WebSocketSession targetSession = resolveSignalTarget(session, message.getFrom(), message.getTo());
+        if (targetSession == null) {
             return;
         }
 
-        message.setVersion(version);
+        message.setVersion(getSessionVersion(session));
 
+        if (isTraced(targetSession)) {
+            queueTracedMessage(targetSession, message, List.of(message), "signal", receivedNanos, parsedNanos);
+            return;
+        }
         try {
-            queueSendMessage(targetSession, new TextMessage(objectMapper.writeValueAsString(message)));
+            queueSendMessage(targetSession, getCodec(targetSession).encode(message), "signal", receivedNanos, parsedNanos);
         } catch (JacksonException e) {
             log.error("[Meeting {}] Failed to serialize message {}", meetingId, message);
         }
@@ -255,33 +419,178 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
 
     }
 
-    public void handleRequestInfoMessage(WebSocketSession session, RequestInfoMessage message) {
-        TextMessage info = getUserInfoMessage(meeting.getParticipants());
-        if (info != null) {
-            queueSendMessage(session, info);
+    // validates and routes the whole batch in one pass, recipients get one frame with all signals meant for them
+    public void handleBatchMessage(WebSocketSession session, BatchMessage batch, long receivedNanos, long parsedNanos) {
+        List<SignalingMessage> signals = batch.getSignals();
+        if (signals == null || signals.isEmpty()) {
+            return;
+        }
+        if (signals.size() > BatchMessage.MAX_SIGNALS) {
+            log.info("[Meeting {}] Discarded batch of {} signals (limit {})", meetingId, signals.size(), BatchMessage.MAX_SIGNALS);
+            return;
         }
 
+        String fromVerified = SessionContext.of(session).getUserId();
+        for (SignalingMessage sig : signals) {
+            if (!fromVerified.equals(sig.getFrom())) {
+                log.info("[Meeting {}] Discarded batch (sender userId mismatch)", meetingId);
+                try {
+                    session.close(WebSocketCloseStatus.UNAUTHORIZED.get());
+                } catch (IOException e) {
+                    //
+                }
+                return;
+            }
+        }
+
+        Long version = getSessionVersion(session);
+        Map<WebSocketSession, List<SignalingMessage>> byRecipient = new LinkedHashMap<>();
+        for (SignalingMessage sig : signals) {
+            WebSocketSession targetSession = resolveSignalTarget(session, sig.getFrom(), sig.getTo());
+            if (targetSession != null) {
+                sig.setVersion(version);
+                byRecipient.computeIfAbsent(targetSession, t -> new ArrayList<>()).add(sig);
+            }
+        }
+
+        byRecipient.forEach((targetSession, group) -> {
+            WebSocketMessage out = group.size() == 1 ? group.getFirst() : new BatchMessage(group);
+            String kind = group.size() == 1 ? "signal" : "batch";
+            if (isTraced(targetSession)) {
+                queueTracedMessage(targetSession, out, group, kind, receivedNanos, parsedNanos);
+                return;
+            }
+            try {
+                queueSendMessage(targetSession, getCodec(targetSession).encode(out), kind, receivedNanos, parsedNanos);
+            } catch (JacksonException e) {
+                log.error("[Meeting {}] Failed to serialize batch of {} signals", meetingId, group.size());
+            }
+        });
+    }
+
+    // fast path for "signal" frames, see SignalingFastPath. returns false if the frame needs the full parse
+    private boolean relayRawSignal(WebSocketSession session, String json, long receivedNanos) {
+        SignalingFastPath.Header header = SignalingFastPath.parseHeader(objectMapper, json);
+        if (header == null) {
+            return false;
+        }
+        long parsed = System.nanoTime();
+
+        WebSocketSession targetSession = resolveSignalTarget(session, header.from(), header.to());
+        if (targetSession == null) {
+            metrics.inbound("signal");
+            return true;
+        }
+        if (getCodec(targetSession) != SignalingCodec.JSON || isTraced(targetSession)) {
+            // recipient needs a different encoding or a trace stamped on, no way around binding the message
+            return false;
+        }
+        metrics.inbound("signal");
+        Long version = getSessionVersion(session);
+        queueSendMessage(targetSession, new TextMessage(SignalingFastPath.spliceVersion(json, header, version)), "signal", receivedNanos, parsed);
+        return true;
+    }
+
+    public void handleRequestInfoMessage(WebSocketSession session, RequestInfoMessage message) {
+        executor.execute(() -> {
+            SessionContext ctx = SessionContext.of(session);
+            if (!isCurrentSession(session, ctx)) {
+                return;
+            }
+            if (meeting.isLargeRoom()) {
+                // too big to send whole, clients page through it and subscribe to the peers they care about
+                int offset = Math.max(0, Objects.requireNonNullElse(message.getOffset(), 0));
+                int limit = Objects.requireNonNullElse(message.getLimit(), RequestInfoMessage.DEFAULT_PAGE_SIZE);
+                limit = Math.clamp(limit, 1, RequestInfoMessage.MAX_PAGE_SIZE);
+                if (ctx.getOutbox().offer(roster.page(offset, limit).encodedFor(ctx.getCodec()))) {
+                    metrics.outbound("rosterPage");
+                }
+                return;
+            }
+            MeetingRoster.Snapshot snapshot = roster.snapshot();
+            sendRoster(ctx, snapshot.message(), snapshot.version());
+        });
+
+    }
+
+    public void handleSubscribeMessage(WebSocketSession session, SubscribeMessage message) {
+        if (!meeting.isLargeRoom()) {
+            // small rooms always get the whole roster
+            return;
+        }
+        List<String> userIds = message.getUserIds() == null ? List.of() : message.getUserIds();
+        if (userIds.size() > SubscribeMessage.MAX_USER_IDS || userIds.stream().anyMatch(Objects::isNull)) {
+            log.info("[Meeting {}] Discarded subscription to {} users (limit {})", meetingId, userIds.size(), SubscribeMessage.MAX_USER_IDS);
+            return;
+        }
+        Set<String> interest = Set.copyOf(userIds);
+        executor.execute(() -> {
+            SessionContext ctx = SessionContext.of(session);
+            if (!isCurrentSession(session, ctx)) {
+                return;
+            }
+            subscribe(session, ctx, interest);
+            // the roster of just these users, later deltas are based on it
+            MeetingRoster.Snapshot snapshot = roster.snapshotOf(interest);
+            sendRoster(ctx, snapshot.message(), snapshot.version());
+        });
     }
 
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        long received = System.nanoTime();
+        if (!validateSession(session)) {
+            return;
+        }
+
+        if (relayRawSignal(session, message.getPayload(), received)) {
+            return;
+        }
+
+        dispatch(session, message, received);
+    }
+
+    @Override
+    public void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        long received = System.nanoTime();
         if (!validateSession(session)) {
             return;
         }
 
+        dispatch(session, message, received);
+    }
+
+    private void dispatch(WebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message, long receivedNanos) {
+        SignalingCodec codec = SignalingCodec.forFrame(message);
         try {
-            WebSocketMessage msg = objectMapper.readValue(message.getPayload(), WebSocketMessage.class);
+            WebSocketMessage msg = codec.decode(message, WebSocketMessage.class);
+            long parsed = System.nanoTime();
+            metrics.inbound(msg.getKind());
             switch (msg) {
-                case SignalingMessage sig -> handleSignalingMessage(session, sig);
+                case SignalingMessage sig -> handleSignalingMessage(session, sig, receivedNanos, parsed);
                 case RequestInfoMessage req -> handleRequestInfoMessage(session, req);
-                default -> log.error("[Meeting {}] Unhandled message {}", meetingId, message.getPayload());
+                case BatchMessage batch -> handleBatchMessage(session, batch, receivedNanos, parsed);
+                case SubscribeMessage sub -> handleSubscribeMessage(session, sub);
+                default -> log.error("[Meeting {}] Unhandled {} message of kind {}", meetingId, codec, msg.getKind());
             }
         } catch (JacksonException e) {
-            log.error("[Meeting {}] failed to parse incoming message {}", meetingId,  message.getPayload());
+            log.error("[Meeting {}] failed to parse incoming {} message ({} bytes)", meetingId, codec, message.getPayloadLength());
         }
 
     }
 
+    // server going away: every session is told when to come back (see DrainCoordinator). participants stay,
+    // with the journal enabled the meeting is restored on the next start
+    public void drain(Supplier<CloseStatus> closeStatus) {
+        sessions.values().forEach(session -> {
+            try {
+                session.close(closeStatus.get());
+            } catch (IOException e) {
+                //
+            }
+        });
+    }
+
     @PreDestroy
     public void close() {
         if (this.isClosed) {
@@ -297,9 +606,9 @@ public class MeetingWebSocketHandler extends TextWebSocketHandler {
             }
         });
         sessions.clear();
+        pendingTimeouts.values().forEach(HashedTimeoutWheel.Timeout::cancel);
         pendingTimeouts.clear();
-        executor.shutdownNow();
-        scheduledExecutorService.shutdownNow();
+        executor.execute(subscribers::clear);
 
     }
 
@@ -0,0 +1,14 @@
+package com.demo.webrtc;
+
+import java.util.function.Consumer;
+
+// transport between cluster nodes (see ClusterNode). messages from one node to another have to arrive in order,
+// LoopbackMessageBus is used unless another implementation is provided as a bean
+public interface MessageBus {
+
+    void send(String nodeId, ClusterMessage message);
+
+    void register(String nodeId, Consumer<ClusterMessage> receiver);
+
+    void unregister(String nodeId);
+}
@@ -0,0 +1,58 @@
+package com.demo.webrtc;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// gauges and counters that already exist as state somewhere, read on scrape (exposed via /actuator/metrics)
+// no per-meeting meters, a meeting id tag would grow without bound
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder signalingGauges(MeetingHandlerRegistry registry, MeetingEventLoopGroup eventLoops,
+                                       SessionOutboxFactory outboxFactory) {
+        return meters -> {
+            Gauge.builder("signaling.meetings", registry, r -> r.all().size())
+                    .description("meetings with a live handler")
+                    .register(meters);
+            Gauge.builder("signaling.participants", registry,
+                            r -> r.all().stream().mapToInt(MeetingWebSocketHandler::getParticipantCount).sum())
+                    .register(meters);
+            Gauge.builder("signaling.sessions", registry,
+                            r -> r.all().stream().mapToInt(MeetingWebSocketHandler::getSessionCount).sum())
+                    .description("open signaling sockets")
+                    .register(meters);
+            Gauge.builder("signaling.executor.queued", eventLoops, MeetingEventLoopGroup::getQueuedTasks)
+                    .tag("executor", "meeting-loops")
+                    .register(meters);
+            Gauge.builder("signaling.executor.queued", outboxFactory, SessionOutboxFactory::getQueuedTasks)
+                    .tag("executor", "ws-sender")
+                    .register(meters);
+        };
+    }
+
+    @Bean
+    public MeterBinder signalingLimits(InboundRateGuard inboundRateGuard, HashedTimeoutWheel timeoutWheel) {
+        return meters -> {
+            FunctionCounter.builder("signaling.inbound.dropped.messages", inboundRateGuard, InboundRateGuard::getDroppedMessages)
+                    .register(meters);
+            FunctionCounter.builder("signaling.inbound.dropped.bytes", inboundRateGuard, InboundRateGuard::getDroppedBytes)
+                    .baseUnit("bytes")
+                    .register(meters);
+            FunctionCounter.builder("signaling.inbound.closed.sessions", inboundRateGuard, InboundRateGuard::getClosedSessions)
+                    .register(meters);
+            FunctionCounter.builder("signaling.timeouts", timeoutWheel, HashedTimeoutWheel::getArmedCount)
+                    .tag("event", "armed")
+                    .register(meters);
+            FunctionCounter.builder("signaling.timeouts", timeoutWheel, HashedTimeoutWheel::getFiredCount)
+                    .tag("event", "fired")
+                    .register(meters);
+            FunctionCounter.builder("signaling.timeouts", timeoutWheel, HashedTimeoutWheel::getCancelledCount)
+                    .tag("event", "cancelled")
+                    .register(meters);
+        };
+    }
+}
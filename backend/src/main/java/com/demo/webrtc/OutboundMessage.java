@@ -0,0 +1,47 @@
+package com.demo.webrtc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketMessage;
+import tools.jackson.core.JacksonException;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// a message that goes out to many sessions, encoded at most once per codec
+public class OutboundMessage {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundMessage.class);
+
+    private final Object value;
+    private final WebSocketMessage<?>[] encoded = new WebSocketMessage<?>[SignalingCodec.values().length];
+    private final ReentrantLock lock = new ReentrantLock(); // not a monitor, encoding may run on virtual threads
+
+    public OutboundMessage(Object value) {
+        this.value = value;
+    }
+
+    // "kind" of the message for metrics, null if it has none
+    public String getKind() {
+        return value instanceof Map<?, ?> map && map.get("kind") instanceof String kind ? kind : null;
+    }
+
+    // null if the value can't be encoded
+    public WebSocketMessage<?> encodedFor(SignalingCodec codec) {
+        lock.lock();
+        try {
+            WebSocketMessage<?> message = encoded[codec.ordinal()];
+            if (message == null) {
+                try {
+                    message = codec.encode(value);
+                    encoded[codec.ordinal()] = message;
+                } catch (JacksonException e) {
+                    log.error("Failed to encode {} as {}", value, codec);
+                }
+            }
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.demo.webrtc;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.WebsocketServerSpec;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// optional second transport for the signaling endpoint: the same /wsr/{meetingId} contract (identity cookie,
+// subprotocols, close codes) on a non-blocking reactor netty server on its own port, next to the servlet one.
+// handshakes go through the same admission (drain, pacing) and routing as WebSocketHandshakeInterceptor, frames go
+// to RoutingWebSocketHandler, so meetings, cluster relaying and the inbound limits are shared with the servlet path.
+// frames are copied on the netty event loops and handled on boundedElastic (in order per connection), the handlers
+// may block (closing servlet sessions, cluster sends). sends are queued in the session's outbox only, see ReactiveWebSocketSession
+// reactor-netty is an optional dependency (see the reactive profile in the pom), without it there is no such bean
+@Component
+@ConditionalOnClass(name = "reactor.netty.http.server.HttpServer")
+@ConditionalOnProperty(name = "app.ws.reactive.enabled", havingValue = "true")
+public class ReactiveSignalingServer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveSignalingServer.class);
+
+    private final WebSocketHandshakeInterceptor handshakeInterceptor;
+    private final RoutingWebSocketHandler routingHandler;
+    private final AnonymousIdentityService identityService;
+    private final List<String> allowedOrigins;
+    private final int maxFrameBytes;
+    private final WebsocketServerSpec spec;
+    private final WebsocketServerSpec subProtocolSpec;
+    private final AtomicLong sessionIds = new AtomicLong(0);
+    private final DisposableServer server;
+
+    public ReactiveSignalingServer(WebSocketHandshakeInterceptor handshakeInterceptor,
+                                   RoutingWebSocketHandler routingHandler,
+                                   AnonymousIdentityService identityService,
+                                   @Value("${app.ws.reactive.enabled:false}") boolean enabled,
+                                   @Value("${app.ws.reactive.port:8081}") int port,
+                                   @Value("${app.ws.inbound.max-frame-bytes:65536}") int maxFrameBytes,
+                                   @Value("${app.cors.allowed-origins:}") String allowedOrigins) {
+        this.handshakeInterceptor = handshakeInterceptor;
+        this.routingHandler = routingHandler;
+        this.identityService = identityService;
+        this.allowedOrigins = Arrays.stream(allowedOrigins.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        this.maxFrameBytes = maxFrameBytes;
+        // with protocols set, netty refuses clients that ask for none (the browser client), so that is a second spec
+        this.spec = WebsocketServerSpec.builder()
+                .maxFramePayloadLength(maxFrameBytes)
+                .build();
+        this.subProtocolSpec = WebsocketServerSpec.builder()
+                .protocols(String.join(",", SignalingCodec.subProtocols()))
+                .maxFramePayloadLength(maxFrameBytes)
+                .build();
+        if (!enabled) {
+            this.server = null;
+            return;
+        }
+        this.server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.get("/wsr/{meetingId}", this::handshake))
+                .bindNow();
+        log.info("Reactive signaling transport listening on port {}", server.port());
+    }
+
+    // bound port, -1 if the transport is disabled
+    public int getPort() {
+        return server != null ? server.port() : -1;
+    }
+
+    private Mono<Void> handshake(HttpServerRequest request, HttpServerResponse response) {
+        String origin = request.requestHeaders().get(HttpHeaderNames.ORIGIN);
+        if (origin != null && !allowedOrigins.isEmpty() && !allowedOrigins.contains(origin)) {
+            return response.status(HttpResponseStatus.FORBIDDEN).send();
+        }
+
+        long retryAfter = handshakeInterceptor.admit();
+        if (retryAfter > 0) {
+            return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaderNames.RETRY_AFTER, String.valueOf(retryAfter))
+                    .send();
+        }
+
+        // unlike the servlet path no fresh identity is handed out here, it would not be in any meeting anyway
+        Set<Cookie> cookies = request.cookies().get("userId");
+        String userId = cookies == null || cookies.isEmpty() ? null : identityService.verifiedUserId(cookies.iterator().next().value());
+        if (userId == null) {
+            return response.status(HttpResponseStatus.FORBIDDEN).send();
+        }
+
+        String meetingId = request.param("meetingId");
+        SessionContext ctx = handshakeInterceptor.contextFor(userId, meetingId);
+        List<String> trace = new QueryStringDecoder(request.uri()).parameters().get("trace");
+        ctx.setTraced(trace != null && WebSocketHandshakeInterceptor.tracingRequested(trace.getFirst()));
+        boolean subProtocol = request.requestHeaders().contains(HttpHeaderNames.SEC_WEBSOCKET_PROTOCOL);
+        return response.sendWebsocket((in, out) -> connect(request, in, out, ctx), subProtocol ? subProtocolSpec : spec);
+    }
+
+    private Mono<Void> connect(HttpServerRequest request, WebsocketInbound in, WebsocketOutbound out, SessionContext ctx) {
+        HttpHeaders headers = new HttpHeaders();
+        request.requestHeaders().forEach(e -> headers.add(e.getKey(), e.getValue()));
+        ReactiveWebSocketSession session = new ReactiveWebSocketSession("rx-" + sessionIds.incrementAndGet(),
+                URI.create(request.uri()), headers, request.hostAddress(), request.remoteAddress(),
+                in.selectedSubprotocol(), maxFrameBytes);
+        session.getAttributes().put("userId", ctx.getUserId());
+        session.getAttributes().put("meetingId", ctx.getMeetingId());
+        session.getAttributes().put(SessionContext.ATTRIBUTE, ctx);
+
+        // frames are copied on the connection's event loop before netty releases them, everything else happens
+        // off the loop. the connection is established before its first frame is handled
+        Mono<Void> receive = Mono.fromRunnable(() -> routingHandler.afterConnectionEstablished(session))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenMany(in.aggregateFrames(maxFrameBytes)
+                        .receiveFrames()
+                        .<WebSocketMessage<?>>handle((frame, sink) -> {
+                            if (frame instanceof TextWebSocketFrame text) {
+                                sink.next(new TextMessage(text.text()));
+                            } else if (frame instanceof BinaryWebSocketFrame binary) {
+                                sink.next(new BinaryMessage(ByteBuffer.wrap(ByteBufUtil.getBytes(binary.content()))));
+                            }
+                        })
+                        .publishOn(Schedulers.boundedElastic()))
+                .doOnNext(message -> {
+                    if (message instanceof TextMessage text) {
+                        routingHandler.handleTextMessage(session, text);
+                    } else if (message instanceof BinaryMessage binary) {
+                        routingHandler.handleBinaryMessage(session, binary);
+                    }
+                })
+                .doFinally(signal -> {
+                    session.markClosed();
+                    CloseStatus status = session.getCloseStatus();
+                    routingHandler.afterConnectionClosed(session, status != null ? status : CloseStatus.NO_STATUS_CODE);
+                })
+                .then()
+                .onErrorResume(e -> Mono.empty()); // connection reset and the like, the session is closed either way
+
+        // netty only asks the session for more frames while the socket is writable, the rest waits in the session's
+        // outbox. once the session is closed by the server the frames netty took are flushed and the close frame follows
+        Mono<Void> send = out.sendObject(session.outbound())
+                .then()
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.defer(() -> {
+                    CloseStatus status = session.getCloseStatus();
+                    return status != null ? out.sendClose(status.getCode(), status.getReason()) : Mono.empty();
+                }))
+                .onErrorResume(e -> Mono.empty());
+
+        return Mono.when(receive, send);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.demo.webrtc;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// a client socket of the reactive transport (see ReactiveSignalingServer) as a WebSocketSession, so the meeting
+// handler treats it like any other session. the session's SessionOutbox is the only queue: sendMessage blocks
+// until netty asks for the frame, which it only does while the socket is writable (plus reactor netty's own
+// prefetch), like a blocking servlet send. so the outbox limits, its send time limit and the slow consumer
+// eviction apply as they are, instead of a second per-session buffer in front of netty
+public class ReactiveWebSocketSession implements WebSocketSession {
+
+    private final String id;
+    private final URI uri;
+    private final HttpHeaders handshakeHeaders;
+    private final InetSocketAddress localAddress;
+    private final InetSocketAddress remoteAddress;
+    private final String acceptedProtocol;
+    private final int maxFrameBytes;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    // emits come from sender threads and closes from anywhere, a sink must not be emitted to concurrently
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition demand = lock.newCondition(); // netty asked for frames, or the session closed
+    private final Flux<WebSocketFrame> outbound;
+    private FluxSink<WebSocketFrame> sink; // once netty subscribed, guarded by lock
+    private volatile boolean open = true;
+    private volatile CloseStatus closeStatus; // set if the server closed the session
+
+    public ReactiveWebSocketSession(String id, URI uri, HttpHeaders handshakeHeaders, InetSocketAddress localAddress,
+                                    InetSocketAddress remoteAddress, String acceptedProtocol, int maxFrameBytes) {
+        this.id = id;
+        this.uri = uri;
+        this.handshakeHeaders = handshakeHeaders;
+        this.localAddress = localAddress;
+        this.remoteAddress = remoteAddress;
+        this.acceptedProtocol = acceptedProtocol;
+        this.maxFrameBytes = maxFrameBytes;
+        this.outbound = Flux.create(this::subscribed);
+    }
+
+    // frames to write, completes once the session is closed. subscribed once
+    Flux<WebSocketFrame> outbound() {
+        return outbound;
+    }
+
+    private void subscribed(FluxSink<WebSocketFrame> sink) {
+        sink.onRequest(n -> signalDemand());
+        sink.onCancel(this::markClosed);
+        lock.lock();
+        try {
+            this.sink = sink;
+            if (!open) {
+                sink.complete();
+            }
+            demand.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalDemand() {
+        lock.lock();
+        try {
+            demand.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    CloseStatus getCloseStatus() {
+        return closeStatus;
+    }
+
+    // the connection is gone (client closed or network error)
+    void markClosed() {
+        lock.lock();
+        try {
+            open = false;
+            complete();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // under lock
+    private void complete() {
+        if (sink != null) {
+            sink.complete();
+        }
+        demand.signalAll();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return handshakeHeaders;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return acceptedProtocol;
+    }
+
+    // the limit is part of the server's websocket spec, fixed per connection
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return maxFrameBytes;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return maxFrameBytes;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    // blocks until netty takes the frame or the session closes (the outbox's send time limit closes it)
+    @Override
+    public void sendMessage(org.springframework.web.socket.WebSocketMessage<?> message) throws IOException {
+        WebSocketFrame frame = switch (message) {
+            case TextMessage text -> new TextWebSocketFrame(text.getPayload());
+            // duplicate, encoded messages are shared by all recipients (see OutboundMessage)
+            case BinaryMessage binary -> new BinaryWebSocketFrame(Unpooled.wrappedBuffer(binary.getPayload().duplicate()));
+            default -> throw new IllegalArgumentException("Unsupported message type " + message.getClass().getSimpleName());
+        };
+        lock.lock();
+        try {
+            while (open && (sink == null || sink.requestedFromDownstream() == 0)) {
+                demand.await();
+            }
+            if (open) {
+                sink.next(frame);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            frame.release();
+            throw new IOException("Interrupted while sending", e);
+        } finally {
+            lock.unlock();
+        }
+        frame.release();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    // the queued frames are still written, then the close frame (see ReactiveSignalingServer)
+    @Override
+    public void close(CloseStatus status) {
+        lock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            closeStatus = status;
+            complete();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.demo.webrtc;
+
+import java.util.concurrent.TimeUnit;
+
+// monotonic timestamps (System.nanoTime) of one relayed frame on its way to one recipient:
+// received by the meeting handler, parsed (routing known), enqueued on the meeting's event loop, dequeued there
+// and offered to the recipient's outbox, written to the socket. recorded per hop by SignalingMetrics once written
+public class RelayTrace {
+
+    private final SignalingMetrics metrics;
+    private final long receivedNanos;
+    private final long parsedNanos;
+    private final long enqueuedNanos = System.nanoTime(); // created when the frame is handed to the event loop
+    private long dequeuedNanos; // set on the event loop, the outbox queue publishes it to the sender
+
+    public RelayTrace(SignalingMetrics metrics, long receivedNanos, long parsedNanos) {
+        this.metrics = metrics;
+        this.receivedNanos = receivedNanos;
+        this.parsedNanos = parsedNanos;
+    }
+
+    // server side part of the trace as stamped on the forwarded message, for clients that asked for it
+    // (see SessionContext.isTraced). the frame is encoded on the loop, so the outbox and socket hops are not in it
+    public record Stamp(long parseMicros, long routeMicros, long loopMicros) {}
+
+    public void dequeued() {
+        dequeuedNanos = System.nanoTime();
+    }
+
+    public void written(long writeStartNanos) {
+        metrics.written(this, writeStartNanos);
+    }
+
+    public Stamp stamp() {
+        return new Stamp(micros(parsedNanos - receivedNanos), micros(enqueuedNanos - parsedNanos),
+                micros(dequeuedNanos - enqueuedNanos));
+    }
+
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    public long getParsedNanos() {
+        return parsedNanos;
+    }
+
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    public long getDequeuedNanos() {
+        return dequeuedNanos;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
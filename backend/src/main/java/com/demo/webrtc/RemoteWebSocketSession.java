@@ -0,0 +1,134 @@
+package com.demo.webrtc;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// owner side stand in for a client socket that is connected to another node (the edge), see ClusterNode
+// the meeting handler treats it like any other session, sends and closes go back to the edge over the bus
+public class RemoteWebSocketSession implements WebSocketSession {
+
+    private final ClusterNode clusterNode;
+    private final String edgeNode;
+    private final String sessionId;
+    private final String acceptedProtocol;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private volatile boolean open = true;
+
+    public RemoteWebSocketSession(ClusterNode clusterNode, String edgeNode, String sessionId, String acceptedProtocol) {
+        this.clusterNode = clusterNode;
+        this.edgeNode = edgeNode;
+        this.sessionId = sessionId;
+        this.acceptedProtocol = acceptedProtocol;
+    }
+
+    public String getEdgeNode() {
+        return edgeNode;
+    }
+
+    public String getEdgeSessionId() {
+        return sessionId;
+    }
+
+    void markClosed() {
+        open = false;
+    }
+
+    @Override
+    public String getId() {
+        return edgeNode + "/" + sessionId;
+    }
+
+    @Override
+    public URI getUri() {
+        return null;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return HttpHeaders.EMPTY;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return acceptedProtocol;
+    }
+
+    // limits are enforced by the edge's container
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    @Override
+    public void sendMessage(org.springframework.web.socket.WebSocketMessage<?> message) {
+        if (open) {
+            clusterNode.sendToEdge(this, message);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    // the edge closes the client socket and reports back with CLOSED, which ends up in afterConnectionClosed
+    @Override
+    public void close(CloseStatus status) {
+        if (open) {
+            open = false;
+            clusterNode.closeOnEdge(this, status);
+        }
+    }
+}
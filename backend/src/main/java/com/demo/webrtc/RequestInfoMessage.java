@@ -1,7 +1,31 @@
 package com.demo.webrtc;
 
 public class RequestInfoMessage extends WebSocketMessage{
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
     public RequestInfoMessage() {
         this.setKind("requestInfo");
     }
+
+    // paging, only used in large rooms
+    private Integer offset;
+    private Integer limit;
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
 }
@@ -0,0 +1,57 @@
+package com.demo.webrtc;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// per client limits on the REST endpoints, by (signed) userId and by client IP
+// the IP limit is higher since several users can share one address (NAT)
+@Component
+public class RequestRateLimiter {
+
+    private static final long USER = 1;
+    private static final long IP = 2;
+
+    private final TokenBucketLimiter createLimiter;
+    private final TokenBucketLimiter createIpLimiter;
+    private final TokenBucketLimiter joinLimiter;
+    private final TokenBucketLimiter joinIpLimiter;
+
+    public RequestRateLimiter(@Value("${app.ratelimit.max-keys:16384}") int maxKeys,
+                              @Value("${app.ratelimit.ip-multiplier:5}") int ipMultiplier,
+                              @Value("${app.ratelimit.create.per-minute:10}") double createPerMinute,
+                              @Value("${app.ratelimit.create.burst:5}") int createBurst,
+                              @Value("${app.ratelimit.join.per-minute:60}") double joinPerMinute,
+                              @Value("${app.ratelimit.join.burst:20}") int joinBurst) {
+        this.createLimiter = new TokenBucketLimiter(maxKeys, createPerMinute, createBurst);
+        this.createIpLimiter = new TokenBucketLimiter(maxKeys, createPerMinute * ipMultiplier, createBurst * ipMultiplier);
+        this.joinLimiter = new TokenBucketLimiter(maxKeys, joinPerMinute, joinBurst);
+        this.joinIpLimiter = new TokenBucketLimiter(maxKeys, joinPerMinute * ipMultiplier, joinBurst * ipMultiplier);
+    }
+
+    // 0 if allowed, otherwise seconds until the client should retry (for Retry-After)
+    public long checkCreate(String userId, HttpServletRequest request) {
+        return check(createLimiter, createIpLimiter, userId, request);
+    }
+
+    public long checkJoin(String userId, HttpServletRequest request) {
+        return check(joinLimiter, joinIpLimiter, userId, request);
+    }
+
+    // a request takes a token from both buckets or from neither: the user's token is given back if the ip bucket
+    // refuses, and a limited user never reaches the shared ip bucket.
+    // behind the proxy getRemoteAddr() is the client's address, see server.forward-headers-strategy
+    private static long check(TokenBucketLimiter byUser, TokenBucketLimiter byIp, String userId, HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        long wait = byUser.tryAcquire(userId, USER);
+        if (wait == 0) {
+            wait = byIp.tryAcquire(ip, IP);
+            if (wait != 0) {
+                byUser.release(userId, USER);
+            }
+        }
+        return wait == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
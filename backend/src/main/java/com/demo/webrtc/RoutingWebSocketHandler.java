@@ -2,26 +2,37 @@ package com.demo.webrtc;
 
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
 
 @Component
-public class RoutingWebSocketHandler extends TextWebSocketHandler {
+public class RoutingWebSocketHandler extends AbstractWebSocketHandler {
 
-    private final MeetingHandlerRegistry meetingHandlerRegistry;
+    private final InboundRateGuard inboundRateGuard;
+    private final ClusterNode clusterNode;
 
-    public RoutingWebSocketHandler(MeetingHandlerRegistry meetingHandlerRegistry) {
-        this.meetingHandlerRegistry = meetingHandlerRegistry;
+    public RoutingWebSocketHandler(InboundRateGuard inboundRateGuard, ClusterNode clusterNode) {
+        this.inboundRateGuard = inboundRateGuard;
+        this.clusterNode = clusterNode;
+    }
+
+    // context of a session for a meeting owned by another node, null for local ones
+    private static SessionContext remoteContext(WebSocketSession session) {
+        SessionContext ctx = SessionContext.of(session);
+        return ctx != null && ctx.getOwnerNode() != null ? ctx : null;
     }
 
 
+    // the handler is resolved once at handshake time (see SessionContext), no registry lookup per frame
     public MeetingWebSocketHandler getHandlerForSession(WebSocketSession session) {
-        if (session.getAttributes().get("meetingId") instanceof String meetingId) {
-            MeetingWebSocketHandler handler = meetingHandlerRegistry.get(meetingId);
+        SessionContext ctx = SessionContext.of(session);
+        if (ctx != null) {
+            MeetingWebSocketHandler handler = ctx.getHandler();
             if (handler != null) {
                 return handler;
             } else {
@@ -45,22 +56,62 @@ public class RoutingWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
+        SessionContext remote = remoteContext(session);
+        if (remote != null) {
+            clusterNode.connect(session, remote);
+            return;
+        }
         MeetingWebSocketHandler handler = getHandlerForSession(session);
         if (handler != null) {
             handler.afterConnectionEstablished(session);
         }
     }
 
+    // over budget frames are dropped here, before the meeting sees (and parses) them
+    private boolean admit(WebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message) {
+        SessionContext ctx = SessionContext.of(session);
+        return ctx == null || inboundRateGuard.admit(session, ctx, message.getPayloadLength());
+    }
+
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        if (!admit(session, message)) {
+            return;
+        }
+        SessionContext remote = remoteContext(session);
+        if (remote != null) {
+            clusterNode.forward(session, remote, message);
+            return;
+        }
         MeetingWebSocketHandler handler = getHandlerForSession(session);
         if (handler != null) {
             handler.handleTextMessage(session, message);
         }
     }
 
+    @Override
+    public void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        if (!admit(session, message)) {
+            return;
+        }
+        SessionContext remote = remoteContext(session);
+        if (remote != null) {
+            clusterNode.forward(session, remote, message);
+            return;
+        }
+        MeetingWebSocketHandler handler = getHandlerForSession(session);
+        if (handler != null) {
+            handler.handleBinaryMessage(session, message);
+        }
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        SessionContext remote = remoteContext(session);
+        if (remote != null) {
+            clusterNode.disconnect(session, remote, status);
+            return;
+        }
         MeetingWebSocketHandler handler = getHandlerForSession(session);
         if (handler != null) {
             handler.afterConnectionClosed(session, status);
@@ -0,0 +1,148 @@
+package com.demo.webrtc;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Set;
+
+// everything the signaling path needs to know about a session, resolved once in WebSocketHandshakeInterceptor
+// and filled in by the meeting handler when the connection is established
+public class SessionContext {
+
+    public static final String ATTRIBUTE = "ctx";
+
+    private final String userId;
+    private final String meetingId;
+    private final MeetingWebSocketHandler handler; // null if the meeting did not exist at handshake time
+    private final String ownerNode; // cluster mode: node owning the meeting if it is not this one, see ClusterNode
+    private final long handshakeNanos = System.nanoTime(); // contexts are created during the handshake
+
+    // set in afterConnectionEstablished
+    private volatile Long version;
+    private volatile SessionOutbox outbox;
+    private volatile SignalingCodec codec = SignalingCodec.JSON;
+
+    // asked for relay traces on the signals it receives (?trace=true on the websocket url), see RelayTrace
+    private volatile boolean traced;
+
+    // membership epoch at the last successful check (see Meeting.checkMembership),
+    // as long as it did not move nobody was removed from the meeting and the check still holds
+    private volatile long membershipEpoch = -1;
+
+    // roster version this session was sent last, only touched on the meeting's event loop
+    private long rosterVersion = -1;
+
+    // large rooms: the peers this session wants roster updates for, only touched on the meeting's event loop
+    private Set<String> interest = Set.of();
+
+    private final InboundBudget inboundBudget = new InboundBudget();
+
+    public SessionContext(String userId, String meetingId, MeetingWebSocketHandler handler) {
+        this(userId, meetingId, handler, null);
+    }
+
+    private SessionContext(String userId, String meetingId, MeetingWebSocketHandler handler, String ownerNode) {
+        this.userId = userId;
+        this.meetingId = meetingId;
+        this.handler = handler;
+        this.ownerNode = ownerNode;
+    }
+
+    // frames of this session are relayed to the owner node
+    public static SessionContext remote(String userId, String meetingId, String ownerNode) {
+        return new SessionContext(userId, meetingId, null, ownerNode);
+    }
+
+    public static SessionContext of(WebSocketSession session) {
+        if (session.getAttributes().get(ATTRIBUTE) instanceof SessionContext ctx) {
+            return ctx;
+        }
+        return null;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getMeetingId() {
+        return meetingId;
+    }
+
+    public MeetingWebSocketHandler getHandler() {
+        return handler;
+    }
+
+    public String getOwnerNode() {
+        return ownerNode;
+    }
+
+    public long getHandshakeNanos() {
+        return handshakeNanos;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public SessionOutbox getOutbox() {
+        return outbox;
+    }
+
+    public void setOutbox(SessionOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    public SignalingCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(SignalingCodec codec) {
+        this.codec = codec;
+    }
+
+    public boolean isTraced() {
+        return traced;
+    }
+
+    public void setTraced(boolean traced) {
+        this.traced = traced;
+    }
+
+    public long getMembershipEpoch() {
+        return membershipEpoch;
+    }
+
+    public void setMembershipEpoch(long membershipEpoch) {
+        this.membershipEpoch = membershipEpoch;
+    }
+
+    public long getRosterVersion() {
+        return rosterVersion;
+    }
+
+    public void setRosterVersion(long rosterVersion) {
+        this.rosterVersion = rosterVersion;
+    }
+
+    public Set<String> getInterest() {
+        return interest;
+    }
+
+    public void setInterest(Set<String> interest) {
+        this.interest = interest;
+    }
+
+    public InboundBudget getInboundBudget() {
+        return inboundBudget;
+    }
+
+    // state of the session's inbound budgets, only touched by InboundRateGuard on the receiving thread
+    public static class InboundBudget {
+        long messagesFullAt;
+        long bytesFullAt;
+        int dropped;
+    }
+}
@@ -0,0 +1,159 @@
+package com.demo.webrtc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// bounded outbound queue of a single session
+// offer() never blocks, the actual (blocking) sends happen on the shared sender executor
+// a session that falls behind (too many queued messages/bytes, or one send taking too long) gets closed
+// the send time limit is checked on every offer and by the factory's watchdog, so a stalled send is noticed
+// even when nothing else gets queued for the session
+public class SessionOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionOutbox.class);
+
+    private final WebSocketSession session;
+    private final Executor sender;
+    private final Executor closer;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final long sendTimeLimitNanos;
+
+    private final Queue<Queued> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedMessages = new AtomicInteger(0);
+    private final AtomicLong queuedBytes = new AtomicLong(0);
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean evicted = new AtomicBoolean(false);
+
+    private volatile long sendStartNanos = 0; // 0 while no send is in progress
+
+    private record Queued(WebSocketMessage<?> message, RelayTrace trace) {}
+
+    public SessionOutbox(WebSocketSession session, Executor sender, Executor closer, int maxMessages, long maxBytes,
+                         long sendTimeLimitNanos) {
+        this.session = session;
+        this.sender = sender;
+        this.closer = closer;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.sendTimeLimitNanos = sendTimeLimitNanos;
+    }
+
+    // returns false if the message was not queued (session closed or evicted)
+    public boolean offer(WebSocketMessage<?> message) {
+        return offer(message, null);
+    }
+
+    // relayed signals carry their trace, which gets the write timestamps once sent
+    public boolean offer(WebSocketMessage<?> message, RelayTrace trace) {
+        if (evicted.get() || !session.isOpen()) {
+            return false;
+        }
+
+        if (!checkSendTime(System.nanoTime())) {
+            return false;
+        }
+
+        int len = message.getPayloadLength();
+        if (queuedMessages.incrementAndGet() > maxMessages || queuedBytes.addAndGet(len) > maxBytes) {
+            evict("buffer limit exceeded (" + queuedMessages.get() + " messages, " + queuedBytes.get() + " bytes)");
+            return false;
+        }
+
+        queue.add(new Queued(message, trace));
+        scheduleDrain();
+        return true;
+    }
+
+    // evicts the session if the current send started more than the limit before now
+    // returns false once the outbox is done (evicted, or session closed), the watchdog then forgets it
+    boolean checkSendTime(long now) {
+        long start = sendStartNanos;
+        if (start != 0 && now - start > sendTimeLimitNanos) {
+            evict("send time limit exceeded");
+        }
+        return !evicted.get() && session.isOpen();
+    }
+
+    public int getQueuedMessages() {
+        return queuedMessages.get();
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(this::drain);
+            } catch (Exception e) {
+                // sender shut down, nothing left to do
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Queued queued;
+            while ((queued = queue.poll()) != null) {
+                WebSocketMessage<?> message = queued.message();
+                if (!evicted.get() && session.isOpen()) {
+                    long start = System.nanoTime();
+                    sendStartNanos = start;
+                    try {
+                        session.sendMessage(message);
+                        if (queued.trace() != null) {
+                            queued.trace().written(start);
+                        }
+                    } catch (Exception e) {
+                        // session is most likely dead already, afterConnectionClosed takes care of the rest
+                    } finally {
+                        sendStartNanos = 0;
+                    }
+                }
+                queuedMessages.decrementAndGet();
+                queuedBytes.addAndGet(-message.getPayloadLength());
+            }
+        } finally {
+            draining.set(false);
+        }
+        // a message may have been queued between the last poll and resetting the flag
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void evict(String reason) {
+        if (!evicted.compareAndSet(false, true)) {
+            return;
+        }
+        String userId = (String) session.getAttributes().get("userId");
+        log.warn("Closing slow WSS {} of userId {}: {}", session.getId(), userId, reason);
+        queue.clear();
+        // closing may block as well, keep it off the caller (meeting event loop or watchdog)
+        // and off the sender threads, which may all be stuck in the sends this close is meant to cut off
+        try {
+            closer.execute(() -> {
+                try {
+                    session.close(WebSocketCloseStatus.SLOW_CONSUMER.get());
+                } catch (IOException e) {
+                    //
+                }
+            });
+        } catch (Exception e) {
+            // closer shut down, the server is going away anyway
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.demo.webrtc;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// creates the per-session outboxes and owns the sender threads they share
+// with virtual threads (spring.threads.virtual.enabled, same switch as for tomcat) every drain gets its own
+// virtual thread instead of a fixed pool, a session blocked in sendMessage then only parks its virtual thread
+// a watchdog enforces the send time limit of all live outboxes, evicted sessions are closed on their own threads
+// so a close never waits for a sender thread held by a stalled send
+@Component
+public class SessionOutboxFactory {
+
+    // tomcat's timeout for a blocking send (default 20s), lowered to the send time limit so a stalled send
+    // gives its sender thread back instead of holding it until tomcat gives up
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final long sendTimeLimitMillis;
+    private final long sendTimeLimitNanos;
+    private final ExecutorService sender;
+    private final ExecutorService closer;
+    private final ScheduledExecutorService watchdog;
+    private final Set<SessionOutbox> outboxes = ConcurrentHashMap.newKeySet();
+
+    public SessionOutboxFactory(@Value("${app.ws.outbound.max-messages:256}") int maxMessages,
+                                @Value("${app.ws.outbound.max-bytes:524288}") long maxBytes,
+                                @Value("${app.ws.outbound.send-time-limit-ms:5000}") long sendTimeLimitMillis,
+                                @Value("${app.ws.outbound.sender-threads:0}") int senderThreads,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+        if (virtualThreads) {
+            this.sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-sender-", 0).factory());
+            this.closer = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-closer-", 0).factory());
+        } else {
+            int n = senderThreads > 0 ? senderThreads : 2 * Runtime.getRuntime().availableProcessors();
+            AtomicInteger counter = new AtomicInteger(0);
+            this.sender = Executors.newFixedThreadPool(n, r -> {
+                Thread t = new Thread(r, "ws-sender-" + counter.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+            // unbounded, evictions are rare and each close may block until the socket gives up
+            AtomicInteger closers = new AtomicInteger(0);
+            this.closer = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "ws-closer-" + closers.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-outbox-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        // a stalled send is evicted at most a quarter of the limit late
+        long period = Math.max(10, sendTimeLimitMillis / 4);
+        watchdog.scheduleWithFixedDelay(this::checkSendTimes, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // drains waiting for a sender thread, always 0 with virtual threads
+    public int getQueuedTasks() {
+        return sender instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    public SessionOutbox create(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession
+                && nativeSession.getNativeSession() instanceof jakarta.websocket.Session wsSession) {
+            wsSession.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+        }
+        SessionOutbox outbox = new SessionOutbox(session, sender, closer, maxMessages, maxBytes, sendTimeLimitNanos);
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    // also drops outboxes of closed or evicted sessions
+    private void checkSendTimes() {
+        long now = System.nanoTime();
+        outboxes.removeIf(outbox -> !outbox.checkSendTime(now));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        sender.shutdownNow();
+        closer.shutdownNow();
+    }
+}
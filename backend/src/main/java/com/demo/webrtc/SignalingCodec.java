@@ -0,0 +1,76 @@
+package com.demo.webrtc;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.nio.ByteBuffer;
+
+// wire format of a signaling session, negotiated through Sec-WebSocket-Protocol (see WebSocketConfig)
+// inbound frames are decoded by frame type, outbound frames are encoded with the recipient's codec,
+// so clients on different codecs can share a meeting
+public enum SignalingCodec {
+    JSON("signaling.json", new ObjectMapper()),
+    CBOR("signaling.cbor", new CBORMapper());
+
+    private final String subProtocol;
+    private final ObjectMapper mapper;
+
+    SignalingCodec(String subProtocol, ObjectMapper mapper) {
+        this.subProtocol = subProtocol;
+        this.mapper = mapper;
+    }
+
+    public String getSubProtocol() {
+        return subProtocol;
+    }
+
+    public static String[] subProtocols() {
+        SignalingCodec[] codecs = values();
+        String[] protocols = new String[codecs.length];
+        for (int i = 0; i < codecs.length; i++) {
+            protocols[i] = codecs[i].subProtocol;
+        }
+        return protocols;
+    }
+
+    // no (or an unknown) subprotocol means JSON, which is what the browser client uses
+    public static SignalingCodec forSubProtocol(String protocol) {
+        for (SignalingCodec codec : values()) {
+            if (codec.subProtocol.equals(protocol)) {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+
+    public static SignalingCodec forFrame(WebSocketMessage<?> message) {
+        return message instanceof BinaryMessage ? CBOR : JSON;
+    }
+
+    public WebSocketMessage<?> encode(Object value) throws JacksonException {
+        return switch (this) {
+            case JSON -> new TextMessage(mapper.writeValueAsString(value));
+            case CBOR -> new BinaryMessage(mapper.writeValueAsBytes(value));
+        };
+    }
+
+    public <T> T decode(WebSocketMessage<?> message, Class<T> type) throws JacksonException {
+        return switch (message) {
+            case TextMessage text -> mapper.readValue(text.getPayload(), type);
+            case BinaryMessage binary -> {
+                ByteBuffer buf = binary.getPayload();
+                if (buf.hasArray()) {
+                    yield mapper.readValue(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining(), type);
+                }
+                byte[] bytes = new byte[buf.remaining()];
+                buf.duplicate().get(bytes);
+                yield mapper.readValue(bytes, type);
+            }
+            default -> throw new IllegalArgumentException("Unsupported frame type " + message.getClass());
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.demo.webrtc;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+// relays "signal" frames without binding them to SignalingMessage and writing them again
+// only the routing headers (kind/to/from) are decoded, the (large, SDP carrying) payload string is skipped by
+// the token stream and forwarded as is, the server assigned version is spliced in before the closing brace
+// anything unexpected (other kinds, unknown or duplicate properties, a client sent version) returns null,
+// the caller then uses the regular ObjectMapper path
+final class SignalingFastPath {
+
+    private SignalingFastPath() {
+    }
+
+    record Header(String to, String from, int closingBrace) {}
+
+    static Header parseHeader(ObjectMapper objectMapper, String json) {
+        String kind = null;
+        String to = null;
+        String from = null;
+        boolean hasPayload = false;
+
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String name;
+            while ((name = parser.nextName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                    case "kind" -> {
+                        if (kind != null || value != JsonToken.VALUE_STRING) return null;
+                        kind = parser.getString();
+                        if (!"signal".equals(kind)) return null;
+                    }
+                    case "to" -> {
+                        if (to != null || value != JsonToken.VALUE_STRING) return null;
+                        to = parser.getString();
+                    }
+                    case "from" -> {
+                        if (from != null || value != JsonToken.VALUE_STRING) return null;
+                        from = parser.getString();
+                    }
+                    case "payload" -> {
+                        // not reading the string value here is the whole point
+                        if (hasPayload || value != JsonToken.VALUE_STRING) return null;
+                        hasPayload = true;
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                return null;
+            }
+        } catch (JacksonException e) {
+            return null;
+        }
+
+        if (kind == null || to == null || from == null || !hasPayload) {
+            return null;
+        }
+        int closingBrace = json.lastIndexOf('}');
+        if (closingBrace < 0) {
+            return null;
+        }
+        return new Header(to, from, closingBrace);
+    }
+
+    static String spliceVersion(String json, Header header, Long version) {
+        return new StringBuilder(json.length() + 32)
+                .append(json, 0, header.closingBrace())
+                .append(",\"version\":")
+                .append(version)
+                .append('}')
+                .toString();
+    }
+}
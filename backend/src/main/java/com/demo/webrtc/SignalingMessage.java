@@ -1,5 +1,8 @@
 package com.demo.webrtc;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 public class SignalingMessage extends WebSocketMessage {
     public SignalingMessage() {
         this.setKind("signal");
@@ -9,6 +12,10 @@ public class SignalingMessage extends WebSocketMessage {
     private String from;
     private String payload;
     private Long version;
+    // only set by the server, for recipients that asked for traces (see RelayTrace)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private RelayTrace.Stamp trace;
 
     public String getTo() {
         return to;
@@ -44,4 +51,12 @@ public class SignalingMessage extends WebSocketMessage {
         this.version = version;
     }
 
+    public RelayTrace.Stamp getTrace() {
+        return trace;
+    }
+
+    public void setTrace(RelayTrace.Stamp trace) {
+        this.trace = trace;
+    }
+
 }
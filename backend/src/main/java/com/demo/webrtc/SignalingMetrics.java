@@ -0,0 +1,94 @@
+package com.demo.webrtc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// meters recorded on the signaling path, all created up front so recording is a map lookup and an add
+// tags only take values from a fixed set (message kinds), never meeting or user ids
+// the gauges (meetings, sessions, queues) are read on scrape instead, see MetricsConfig
+@Component
+public class SignalingMetrics {
+
+    private static final List<String> INBOUND_KINDS = List.of("signal", "batch", "requestInfo", "subscribe");
+    private static final List<String> OUTBOUND_KINDS = List.of("signal", "batch", "info", "rosterDelta", "rosterPage");
+    private static final String OTHER = "other";
+
+    private final Map<String, Counter> inbound;
+    private final Map<String, Counter> outbound;
+    private final Timer established;
+    private final Timer relay;
+    // per hop of a relayed frame, see RelayTrace
+    private final Timer parse;
+    private final Timer route;
+    private final Timer loop;
+    private final Timer outbox;
+    private final Timer write;
+
+    public SignalingMetrics(MeterRegistry registry) {
+        this.inbound = counters(registry, "signaling.messages.inbound", INBOUND_KINDS);
+        this.outbound = counters(registry, "signaling.messages.outbound", OUTBOUND_KINDS);
+        this.established = Timer.builder("signaling.session.established")
+                .description("handshake until the meeting handler accepted the session")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.relay = Timer.builder("signaling.relay.latency")
+                .description("signal received until it was queued for the recipient")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parse = hop(registry, "parse", "frame received until its routing was decoded");
+        this.route = hop(registry, "route", "routing decoded until handed to the meeting's event loop");
+        this.loop = hop(registry, "loop", "waiting in the meeting's event loop queue");
+        this.outbox = hop(registry, "outbox", "waiting in the recipient's outbox for a sender");
+        this.write = hop(registry, "write", "socket write");
+    }
+
+    private static Timer hop(MeterRegistry registry, String hop, String description) {
+        return Timer.builder("signaling.relay.hop")
+                .tag("hop", hop)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Map<String, Counter> counters(MeterRegistry registry, String name, List<String> kinds) {
+        Map<String, Counter> counters = new HashMap<>();
+        for (String kind : kinds) {
+            counters.put(kind, Counter.builder(name).tag("kind", kind).register(registry));
+        }
+        counters.put(OTHER, Counter.builder(name).tag("kind", OTHER).register(registry));
+        return Collections.unmodifiableMap(counters); // kind may be null, which Map.copyOf does not take
+    }
+
+    public void inbound(String kind) {
+        inbound.getOrDefault(kind, inbound.get(OTHER)).increment();
+    }
+
+    public void outbound(String kind) {
+        outbound.getOrDefault(kind, outbound.get(OTHER)).increment();
+    }
+
+    public void established(long handshakeNanos) {
+        established.record(System.nanoTime() - handshakeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void relayed(long receivedNanos) {
+        relay.record(System.nanoTime() - receivedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void written(RelayTrace trace, long writeStartNanos) {
+        long now = System.nanoTime();
+        parse.record(trace.getParsedNanos() - trace.getReceivedNanos(), TimeUnit.NANOSECONDS);
+        route.record(trace.getEnqueuedNanos() - trace.getParsedNanos(), TimeUnit.NANOSECONDS);
+        loop.record(trace.getDequeuedNanos() - trace.getEnqueuedNanos(), TimeUnit.NANOSECONDS);
+        outbox.record(writeStartNanos - trace.getDequeuedNanos(), TimeUnit.NANOSECONDS);
+        write.record(now - writeStartNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,24 @@
+package com.demo.webrtc;
+
+import java.util.List;
+
+// large rooms only: the peers a client wants roster updates for (replaces the previous subscription)
+public class SubscribeMessage extends WebSocketMessage {
+
+    public static final int MAX_USER_IDS = 100;
+
+    public SubscribeMessage() {
+        this.setKind("subscribe");
+    }
+
+    private List<String> userIds;
+
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<String> userIds) {
+        this.userIds = userIds;
+    }
+
+}
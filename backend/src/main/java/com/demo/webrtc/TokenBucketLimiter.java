@@ -0,0 +1,129 @@
+package com.demo.webrtc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// token buckets for a bounded number of keys, striped so unrelated keys don't contend on one lock
+// each bucket is a single long, the time at which it is full again (GCRA), so there is nothing to refill
+// and a bucket that is full again is the same as no bucket: idle keys expire on their own and their slot is reused
+// keys are only stored as a 64 bit hash, nothing is allocated per call
+// stripes are ReentrantLocks rather than monitors: on java 21 a virtual thread waiting for a monitor pins its carrier
+public class TokenBucketLimiter {
+
+    private static final int STRIPES = 64;
+    private static final int PROBES = 8;
+
+    private final long intervalNanos; // one token per interval
+    private final long burstNanos;    // intervalNanos * burst, how far ahead of now a bucket may run
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public TokenBucketLimiter(int maxKeys, double perMinute, int burst) {
+        if (maxKeys <= 0 || perMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("maxKeys, rate and burst must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / perMinute);
+        this.burstNanos = intervalNanos * burst;
+        int slots = Integer.highestOneBit(Math.max(PROBES, maxKeys / STRIPES));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(slots);
+        }
+    }
+
+    // 0 if a token was taken, otherwise the nanos until one is available
+    public long tryAcquire(String key, long seed) {
+        return tryAcquire(key, seed, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long seed, long now) {
+        long hash = hash(key, seed);
+        Stripe stripe = stripes[(int) (hash >>> 58)]; // top 6 bits pick the stripe, the low bits the slot
+        stripe.lock();
+        try {
+            return stripe.acquire(hash, now);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // gives back a token taken by tryAcquire, for callers that take from several buckets and one of the others refused
+    public void release(String key, long seed) {
+        long hash = hash(key, seed);
+        Stripe stripe = stripes[(int) (hash >>> 58)];
+        stripe.lock();
+        try {
+            stripe.release(hash);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // FNV-1a over the chars, seed keeps e.g. user and ip keys apart. 0 marks an empty slot
+    private static long hash(String key, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 29;
+        return h == 0 ? 1 : h;
+    }
+
+    private class Stripe extends ReentrantLock {
+        private final long[] keys;
+        private final long[] fullAt;
+        private final int mask;
+
+        Stripe(int slots) {
+            this.keys = new long[slots];
+            this.fullAt = new long[slots];
+            this.mask = slots - 1;
+        }
+
+        long acquire(long hash, long now) {
+            int start = (int) hash & mask;
+            int slot = -1;
+            int victim = start;
+            for (int i = 0; i < PROBES; i++) {
+                int s = (start + i) & mask;
+                if (keys[s] == hash) {
+                    slot = s;
+                    break;
+                }
+                // free or full again, otherwise the bucket closest to full (least recently limited)
+                if (keys[s] == 0 || fullAt[s] - now <= 0) {
+                    victim = s;
+                } else if (keys[victim] != 0 && fullAt[victim] - now > 0 && fullAt[s] - fullAt[victim] < 0) {
+                    victim = s;
+                }
+            }
+            long base = now;
+            if (slot == -1) {
+                // a new key always starts with a full bucket. if the table is full of busy keys
+                // the least busy one is forgotten, which only ever errs on the side of letting requests through
+                slot = victim;
+                keys[slot] = hash;
+            } else if (fullAt[slot] - now > 0) {
+                base = fullAt[slot];
+            }
+            long next = base + intervalNanos;
+            long ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            fullAt[slot] = next;
+            return 0;
+        }
+
+        // a forgotten key has a full bucket anyway, so there is nothing to give back to
+        void release(long hash) {
+            int start = (int) hash & mask;
+            for (int i = 0; i < PROBES; i++) {
+                int s = (start + i) & mask;
+                if (keys[s] == hash) {
+                    fullAt[s] -= intervalNanos;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -7,7 +7,11 @@ public enum WebSocketCloseStatus {
     MEETING_NOT_FOUND(4002, "Meeting not found"),
     MEETING_ENDED(4004, "Meeting ended"),
     SERVER_ERROR(5001, "Server Error"),
-    DUPLICATE_SESSION(4005, "Duplicate session for meeting (use a second anonymous window or two different browsers for local testing)");
+    DUPLICATE_SESSION(4005, "Duplicate session for meeting (use a second anonymous window or two different browsers for local testing)"),
+    SLOW_CONSUMER(4006, "Connection too slow"),
+    FLOODING(4007, "Too many messages"),
+    // server going away, the reason is "reconnect:<ms>" and clients wait that long before reconnecting
+    RECONNECT(4008, "reconnect");
 
     private final int code;
     private final String reason;
@@ -21,4 +25,8 @@ public enum WebSocketCloseStatus {
         return new CloseStatus(code, reason);
     }
 
+    public CloseStatus get(String detail) {
+        return new CloseStatus(code, reason + ":" + detail);
+    }
+
 }
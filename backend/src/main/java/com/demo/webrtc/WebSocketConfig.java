@@ -1,14 +1,18 @@
 package com.demo.webrtc;
 
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.server.ServerContainer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.ServletContextAware;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 @Configuration
 @EnableWebSocket
-public class WebSocketConfig implements WebSocketConfigurer {
+public class WebSocketConfig implements WebSocketConfigurer, ServletContextAware {
 
     private final WebSocketHandshakeInterceptor webSocketHandshakeInterceptor;
 
@@ -23,9 +27,27 @@ public class WebSocketConfig implements WebSocketConfigurer {
         this.routingWebSocketHandler = routingWebSocketHandler;
     }
 
+    @Value("${app.ws.inbound.max-frame-bytes:65536}")
+    private int maxFrameBytes;
+
+    // frames above this are refused by the container before they reach any handler (closed with 1009)
+    // same as ServletServerContainerFactoryBean, which fails if there is no container (mock servlet environment in tests)
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        if (servletContext.getAttribute(ServerContainer.class.getName()) instanceof ServerContainer container) {
+            container.setDefaultMaxTextMessageBufferSize(maxFrameBytes);
+            container.setDefaultMaxBinaryMessageBufferSize(maxFrameBytes);
+        }
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // clients may ask for a codec via Sec-WebSocket-Protocol, no subprotocol means JSON (see SignalingCodec)
+        DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+        handshakeHandler.setSupportedProtocols(SignalingCodec.subProtocols());
+
         registry.addHandler(routingWebSocketHandler, "/wsr/{meetingId}")
+                .setHandshakeHandler(handshakeHandler)
                 .setAllowedOrigins(allowedOrigins)
                 .addInterceptors(webSocketHandshakeInterceptor);
 
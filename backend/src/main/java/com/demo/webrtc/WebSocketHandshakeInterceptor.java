@@ -3,6 +3,9 @@ package com.demo.webrtc;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
@@ -12,6 +15,7 @@ import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 @Component
@@ -21,7 +25,22 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
     private static final Logger log = LoggerFactory.getLogger(WebSocketHandshakeInterceptor.class);
 
 
-    public WebSocketHandshakeInterceptor() {
+    private final MeetingHandlerRegistry meetingHandlerRegistry;
+    private final ClusterNode clusterNode;
+    private final DrainCoordinator drainCoordinator;
+
+    // paces handshakes for the whole instance, so a wave of reconnects (e.g. from another instance draining)
+    // is spread out instead of handled all at once
+    private final TokenBucketLimiter handshakeLimiter;
+
+    public WebSocketHandshakeInterceptor(MeetingHandlerRegistry meetingHandlerRegistry, ClusterNode clusterNode,
+                                         DrainCoordinator drainCoordinator,
+                                         @Value("${app.ws.handshake.per-second:100}") int handshakesPerSecond,
+                                         @Value("${app.ws.handshake.burst:200}") int handshakeBurst) {
+        this.meetingHandlerRegistry = meetingHandlerRegistry;
+        this.clusterNode = clusterNode;
+        this.drainCoordinator = drainCoordinator;
+        this.handshakeLimiter = new TokenBucketLimiter(1, handshakesPerSecond * 60.0, handshakeBurst);
     }
 
 
@@ -36,7 +55,15 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
 
             HttpServletRequest httpServletRequest = servletServerHttpRequest.getServletRequest();
 
-            if (httpServletRequest.getAttribute("userId") instanceof String userId) {
+            long retryAfter = admit();
+            if (retryAfter > 0) {
+                reject(response, retryAfter);
+                return false;
+            }
+
+            String userId;
+            if (httpServletRequest.getAttribute("userId") instanceof String u) {
+                userId = u;
                 attributes.put("userId", userId);
             } else {
                 log.error("UserId not present in request attributes");
@@ -53,16 +80,47 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
             }
             String meetingId = parts[2];
 
-            // i deliberately don't check existence of the meeting/handler here
+            // i deliberately don't reject missing meetings/handlers here
             // this is done in the routing handler, where i can then close the wss with a meaningful error code
+            // (the context just carries a null handler)
 
+            SessionContext ctx = contextFor(userId, meetingId);
+            ctx.setTraced(tracingRequested(httpServletRequest.getParameter("trace")));
             attributes.put("meetingId", meetingId);
+            attributes.put(SessionContext.ATTRIBUTE, ctx);
             return true;
         } else {
             throw new RuntimeException("Expected a ServletServerHttpRequest");
         }
     }
 
+    // 0 if a handshake may go ahead, otherwise the seconds to tell the client to wait (503 + Retry-After)
+    // shared with the reactive transport, see ReactiveSignalingServer
+    public long admit() {
+        if (drainCoordinator.isDraining()) {
+            return 5;
+        }
+        long wait = handshakeLimiter.tryAcquire("handshake", 0);
+        return wait > 0 ? Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait)) : 0;
+    }
+
+    public SessionContext contextFor(String userId, String meetingId) {
+        // meetings owned by another node are relayed there (cluster mode), see ClusterNode
+        return clusterNode.isLocal(meetingId)
+                ? new SessionContext(userId, meetingId, meetingHandlerRegistry.get(meetingId))
+                : SessionContext.remote(userId, meetingId, clusterNode.ownerOf(meetingId));
+    }
+
+    // value of the trace query parameter of the websocket url
+    public static boolean tracingRequested(String trace) {
+        return "true".equals(trace) || "1".equals(trace);
+    }
+
+    private static void reject(ServerHttpResponse response, long retryAfterSeconds) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+
     @Override
     public void afterHandshake(ServerHttpRequest request,
                                ServerHttpResponse response,
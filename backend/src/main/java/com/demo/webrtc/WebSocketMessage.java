@@ -7,7 +7,9 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 @JsonSubTypes({
         @JsonSubTypes.Type(value = InfoMessage.class, name = "info"),
         @JsonSubTypes.Type(value = SignalingMessage.class, name = "signal"),
-        @JsonSubTypes.Type(value = RequestInfoMessage.class, name = "requestInfo")
+        @JsonSubTypes.Type(value = RequestInfoMessage.class, name = "requestInfo"),
+        @JsonSubTypes.Type(value = BatchMessage.class, name = "batch"),
+        @JsonSubTypes.Type(value = SubscribeMessage.class, name = "subscribe")
 })
 public abstract class WebSocketMessage {
     private String kind;
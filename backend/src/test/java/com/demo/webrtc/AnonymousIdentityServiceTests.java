@@ -0,0 +1,95 @@
+package com.demo.webrtc;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// only the service in the context, so the secret goes through the same @Value placeholder as in the app
+@SpringJUnitConfig(AnonymousIdentityService.class)
+@TestPropertySource(properties = {"app.hmac.sha256.secret=test-secret", "app.cookies.secure=false"})
+class AnonymousIdentityServiceTests {
+
+    private static final String SECRET = "test-secret";
+
+    @Autowired
+    private AnonymousIdentityService service;
+
+    @Test
+    void acceptsCookieSignedWithConfiguredSecret() throws Exception {
+        String userId = "usr-" + UUID.randomUUID();
+        String cookie = cookie(SECRET, userId);
+
+        assertEquals(userId, service.verifiedUserId(cookie));
+        assertEquals(userId, service.verifiedUserId(cookie)); // cached
+        assertTrue(service.isValidSignedUserId(cookie));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("userId", cookie));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertEquals(userId, service.extractOrCreateUserId(request, response));
+        assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+    }
+
+    @Test
+    void rejectsTamperedCookies() throws Exception {
+        String userId = "usr-" + UUID.randomUUID();
+        String cookie = cookie(SECRET, userId);
+        String signature = cookie.substring(cookie.indexOf(':') + 1);
+        char first = signature.charAt(0);
+
+        // other id, flipped signature character, unsigned, signed with the unresolved placeholder
+        assertNull(service.verifiedUserId("usr-" + UUID.randomUUID() + ":" + signature));
+        assertNull(service.verifiedUserId(userId + ":" + (first == 'A' ? 'B' : 'A') + signature.substring(1)));
+        assertNull(service.verifiedUserId(userId));
+        assertNull(service.verifiedUserId(cookie("{app.hmac.sha256.secret}", userId)));
+        assertNull(service.verifiedUserId(null));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("userId", userId + ":" + signature.toLowerCase()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String fresh = service.extractOrCreateUserId(request, response);
+        assertNotEquals(userId, fresh);
+        assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).startsWith("userId=" + fresh + ":"));
+    }
+
+    // "a:b:sig" must not verify as "a" or "a:b", whatever is signed
+    @Test
+    void rejectsCookieWithExtraSeparator() throws Exception {
+        String userId = "usr-" + UUID.randomUUID();
+        String cookie = cookie(SECRET, userId);
+
+        assertNull(service.verifiedUserId(cookie + ":"));
+        assertNull(service.verifiedUserId(cookie + ":" + cookie.substring(cookie.indexOf(':') + 1)));
+        assertNull(service.verifiedUserId(userId + ":x" + cookie.substring(cookie.indexOf(':'))));
+        assertNull(service.verifiedUserId(cookie(SECRET, userId + ":x")));
+    }
+
+    @Test
+    void cacheStaysBounded() throws Exception {
+        AnonymousIdentityService small = new AnonymousIdentityService(SECRET, 4, 128, 10);
+        for (int i = 0; i < 1_000; i++) {
+            String userId = "usr-" + UUID.randomUUID();
+            assertEquals(userId, small.verifiedUserId(cookie(SECRET, userId)));
+            assertTrue(small.getCachedIds() <= 128, small.getCachedIds() + " cached ids");
+        }
+    }
+
+    private static String cookie(String secret, String userId) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(), "HmacSHA256"));
+        return userId + ":" + Base64.getEncoder().encodeToString(mac.doFinal(userId.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// batches of signals from usr-a to usr-b through the handler, at and over BatchMessage.MAX_SIGNALS
+class BatchMessageTests {
+
+    private final SignalingFixture fixture = new SignalingFixture();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<String> toB = new LinkedBlockingQueue<>();
+    private MeetingWebSocketHandler handler;
+    private WebSocketSession sessionA;
+
+    @BeforeEach
+    void connect() {
+        Meeting meeting = new Meeting("usr-a");
+        handler = fixture.handlerFor(meeting);
+        meeting.addParticipant("usr-a");
+        meeting.addParticipant("usr-b");
+        sessionA = SignalingFixture.session(new SessionContext("usr-a", meeting.getMeetingId(), handler), new LinkedBlockingQueue<>());
+        handler.afterConnectionEstablished(sessionA);
+        handler.afterConnectionEstablished(SignalingFixture.session(new SessionContext("usr-b", meeting.getMeetingId(), handler), toB));
+    }
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    // all signals to one recipient go out as a single batch frame, in order
+    @Test
+    void batchAtLimitIsRelayed() throws Exception {
+        handler.handleTextMessage(sessionA, batch(BatchMessage.MAX_SIGNALS));
+
+        JsonNode frame = nextSignalFrame();
+        assertEquals("batch", frame.path("kind").asString());
+        assertEquals(BatchMessage.MAX_SIGNALS, frame.path("signals").size());
+        assertEquals("c0", frame.path("signals").path(0).path("payload").asString());
+        assertEquals("c" + (BatchMessage.MAX_SIGNALS - 1), frame.path("signals").path(BatchMessage.MAX_SIGNALS - 1).path("payload").asString());
+    }
+
+    // discarded as a whole, the session stays usable
+    @Test
+    void batchOverLimitIsDiscarded() throws Exception {
+        handler.handleTextMessage(sessionA, batch(BatchMessage.MAX_SIGNALS + 1));
+        handler.handleTextMessage(sessionA, batch(1));
+
+        JsonNode frame = nextSignalFrame();
+        assertEquals("signal", frame.path("kind").asString());
+        assertEquals("c0", frame.path("payload").asString());
+        assertEquals(2, fixture.meters.get("signaling.messages.inbound").tag("kind", "batch").counter().count());
+        assertEquals(1, fixture.meters.get("signaling.messages.outbound").tag("kind", "signal").counter().count());
+    }
+
+    private TextMessage batch(int size) {
+        List<SignalingMessage> signals = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            SignalingMessage signal = new SignalingMessage();
+            signal.setFrom("usr-a");
+            signal.setTo("usr-b");
+            signal.setPayload("c" + i);
+            signals.add(signal);
+        }
+        return new TextMessage(objectMapper.writeValueAsString(new BatchMessage(signals)));
+    }
+
+    // skips the roster frames
+    private JsonNode nextSignalFrame() throws InterruptedException {
+        String frame;
+        while ((frame = toB.poll(2, TimeUnit.SECONDS)) != null) {
+            JsonNode node = objectMapper.readTree(frame);
+            String kind = node.path("kind").asString();
+            if (kind.equals("signal") || kind.equals("batch")) {
+                return node;
+            }
+        }
+        return fail("no signal received");
+    }
+}
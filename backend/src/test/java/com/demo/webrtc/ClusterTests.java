@@ -0,0 +1,128 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two nodes in one JVM on a LoopbackMessageBus
+class ClusterTests {
+
+    private final MessageBus bus = new LoopbackMessageBus();
+    private final SignalingFixture fixture = new SignalingFixture();
+    private final InboundRateGuard inboundRateGuard = new InboundRateGuard(50, 200, 131072, 524288, 200);
+    private final Node a = new Node("node-a", fixture.registry);
+    private final Node b = new Node("node-b", fixture.newRegistry());
+
+    private class Node {
+        final MeetingHandlerRegistry registry;
+        final ClusterNode cluster;
+        final MeetingService meetings;
+        final RoutingWebSocketHandler routing;
+
+        Node(String nodeId, MeetingHandlerRegistry registry) {
+            this.registry = registry;
+            cluster = new ClusterNode(true, nodeId, List.of("node-a", "node-b"), 128, bus, registry, fixture.outboxFactory);
+            meetings = new MeetingService(registry, fixture.wheel, cluster, new MeetingJournal(false, "", 0, 0), 500, 16);
+            routing = new RoutingWebSocketHandler(inboundRateGuard, cluster);
+        }
+
+        // what WebSocketHandshakeInterceptor does
+        WebSocketSession connect(String userId, String meetingId, BlockingQueue<String> received) {
+            SessionContext ctx = cluster.isLocal(meetingId)
+                    ? new SessionContext(userId, meetingId, registry.get(meetingId))
+                    : SessionContext.remote(userId, meetingId, cluster.ownerOf(meetingId));
+            WebSocketSession session = SignalingFixture.session(ctx, received);
+            routing.afterConnectionEstablished(session);
+            return session;
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        a.cluster.stop();
+        b.cluster.stop();
+        fixture.close();
+    }
+
+    @Test
+    void ringSpreadsMeetingsOverNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(ring.ownerOf(UUID.randomUUID().toString()), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(n -> assertTrue(n > 700, counts.toString()));
+    }
+
+    @Test
+    void signalsCrossNodes() throws Exception {
+        Meeting meeting = b.meetings.createMeeting("usr-b");
+        String meetingId = meeting.getMeetingId();
+        assertTrue(b.cluster.isLocal(meetingId));
+        assertFalse(a.cluster.isLocal(meetingId));
+
+        // REST calls on the other node are answered by the owner
+        assertTrue(a.meetings.meetingExists(meetingId));
+        assertEquals(MeetingJoinResult.SUCCESS, a.meetings.joinMeeting(meetingId, "usr-a"));
+        assertEquals(MeetingJoinResult.SUCCESS, b.meetings.joinMeeting(meetingId, "usr-b"));
+        assertEquals(Set.of("usr-a", "usr-b"), meeting.getParticipants());
+
+        BlockingQueue<String> toA = new LinkedBlockingQueue<>();
+        BlockingQueue<String> toB = new LinkedBlockingQueue<>();
+        WebSocketSession sessionA = a.connect("usr-a", meetingId, toA); // relayed to node-b
+        WebSocketSession sessionB = b.connect("usr-b", meetingId, toB);
+        MeetingWebSocketHandler handler = b.registry.get(meetingId);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!(handler.hasActiveSession("usr-a") && handler.hasActiveSession("usr-b")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        a.routing.handleTextMessage(sessionA, new TextMessage("{\"kind\":\"signal\",\"to\":\"usr-b\",\"from\":\"usr-a\",\"payload\":\"offer\"}"));
+        assertTrue(awaitContaining(toB, "\"payload\":\"offer\""));
+        b.routing.handleTextMessage(sessionB, new TextMessage("{\"kind\":\"signal\",\"to\":\"usr-a\",\"from\":\"usr-b\",\"payload\":\"answer\"}"));
+        assertTrue(awaitContaining(toA, "\"payload\":\"answer\""));
+        // both signals went through the owner's meeting handler
+        assertEquals(2, fixture.meters.get("signaling.messages.inbound").tag("kind", "signal").counter().count());
+    }
+
+    // a join forwarded to the owner is answered there. one that reached a node not holding the meeting (the ring
+    // moved) is answered from that node instead of being forwarded again from the bus thread
+    @Test
+    void forwardedJoinIsAnsweredByTheNodeItReached() throws Exception {
+        Meeting meeting = b.meetings.createMeeting("usr-b");
+        String meetingId = meeting.getMeetingId();
+        assertEquals("SUCCESS", a.cluster.request(ClusterMessage.Type.JOIN, meetingId, "usr-a").get(1, TimeUnit.SECONDS));
+        assertEquals(Set.of("usr-a"), meeting.getParticipants());
+
+        BlockingQueue<ClusterMessage> replies = new LinkedBlockingQueue<>();
+        bus.register("node-x", replies::add);
+        try {
+            bus.send("node-a", new ClusterMessage(ClusterMessage.Type.JOIN, "node-x", 1, meetingId, null, "usr-x", null, null, 0));
+            ClusterMessage reply = replies.poll(1, TimeUnit.SECONDS);
+            assertNotNull(reply, "no reply from node-a");
+            assertEquals("", reply.text());
+            assertEquals(Set.of("usr-a"), meeting.getParticipants());
+        } finally {
+            bus.unregister("node-x");
+        }
+    }
+
+    private static boolean awaitContaining(BlockingQueue<String> received, String part) throws InterruptedException {
+        String frame;
+        while ((frame = received.poll(2, TimeUnit.SECONDS)) != null) {
+            if (frame.contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimeoutWheelTests {
+
+    private final HashedTimeoutWheel wheel = new HashedTimeoutWheel(10, 8);
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void firesAfterDelayIncludingExtraRounds() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(latch::countDown, 250, TimeUnit.MILLISECONDS); // more than one turn of 8 * 10ms
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(2, wheel.getArmedCount());
+        assertEquals(2, wheel.getFiredCount());
+        assertEquals(0, wheel.getCancelledCount());
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedTimeoutWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        Thread.sleep(100);
+
+        assertEquals(0, runs.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(1, wheel.getCancelledCount());
+        assertEquals(0, wheel.getFiredCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LargeMeetingTests {
+
+    private static final int PARTICIPANTS = 500;
+
+    private final SignalingFixture fixture = new SignalingFixture();
+    private final AtomicLong framesSent = new AtomicLong();
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    // roster frames per join stay flat as the room fills up, a broadcast room would send O(n) frames per join here
+    // (O(n^2) in total). frames are counted once all outboxes are drained, sends happen on the sender thread
+    @Test
+    void joinCostStaysFlat() throws Exception {
+        Meeting meeting = new Meeting("owner", PARTICIPANTS, true);
+        MeetingWebSocketHandler handler = fixture.handlerFor(meeting);
+
+        List<SessionContext> contexts = new ArrayList<>();
+        long[] joinFrames = new long[PARTICIPANTS];
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            String userId = "usr-" + i;
+            WebSocketSession session = SignalingFixture.session(new SessionContext(userId, meeting.getMeetingId(), handler),
+                    message -> framesSent.incrementAndGet());
+            contexts.add(SessionContext.of(session));
+
+            long before = framesSent.get();
+            meeting.addParticipant(userId);
+            handler.afterConnectionEstablished(session);
+            // everyone follows the first few participants (speakers)
+            SubscribeMessage sub = new SubscribeMessage();
+            sub.setUserIds(List.of("usr-0", "usr-1", "usr-2", userId));
+            handler.handleSubscribeMessage(session, sub);
+            fixture.awaitLoop(meeting.getMeetingId()); // after the flush scheduled by the join
+            awaitDrained(contexts);
+            joinFrames[i] = framesSent.get() - before;
+        }
+
+        assertEquals(PARTICIPANTS, meeting.getParticipants().size());
+        // a subscription snapshot and at most a couple of deltas each
+        assertTrue(framesSent.get() < 4L * PARTICIPANTS, framesSent.get() + " frames sent");
+        long early = Arrays.stream(joinFrames, 10, 20).max().orElseThrow();
+        long late = Arrays.stream(joinFrames, PARTICIPANTS - 10, PARTICIPANTS).max().orElseThrow();
+        assertTrue(late <= early, "frames per join grew from " + early + " to " + late);
+    }
+
+    private static void awaitDrained(List<SessionContext> contexts) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (SessionContext ctx : contexts) {
+            while (ctx.getOutbox().getQueuedMessages() > 0) {
+                assertTrue(System.nanoTime() < deadline, "outbox of " + ctx.getUserId() + " not drained");
+                Thread.sleep(1);
+            }
+        }
+    }
+}
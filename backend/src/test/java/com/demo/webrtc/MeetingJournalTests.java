@@ -0,0 +1,62 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeetingJournalTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresLiveStateAcrossCompactions() {
+        String path = dir.resolve("meetings.journal").toString();
+        MeetingJournal journal = new MeetingJournal(true, path, 4096, 5);
+
+        Meeting kept = new Meeting("usr-owner", 8, false);
+        journal.meetingCreated(kept);
+        // churn well past the 4 KiB file, forces compactions
+        for (int i = 0; i < 500; i++) {
+            String userId = "usr-" + i;
+            kept.addParticipant(userId);
+            journal.participantJoined(kept, userId);
+            kept.removeParticipant(userId);
+            journal.participantLeft(kept, userId);
+        }
+        kept.addParticipant("usr-a");
+        journal.participantJoined(kept, "usr-a");
+        kept.addParticipant("usr-b");
+        journal.participantJoined(kept, "usr-b");
+
+        Meeting deleted = new Meeting("usr-owner");
+        journal.meetingCreated(deleted);
+        journal.meetingDeleted(deleted.getMeetingId());
+        journal.stop();
+
+        List<MeetingJournal.RestoredMeeting> restored = new MeetingJournal(true, path, 4096, 5).restore();
+        assertEquals(List.of(new MeetingJournal.RestoredMeeting(kept.getMeetingId(), "usr-owner", 8, false,
+                Set.of("usr-a", "usr-b"))), restored);
+    }
+
+    @Test
+    void staleEventsAreNotJournaled() {
+        String path = dir.resolve("meetings.journal").toString();
+        MeetingJournal journal = new MeetingJournal(true, path, 4096, 5);
+        Meeting meeting = new Meeting("usr-owner");
+        journal.meetingCreated(meeting);
+
+        meeting.addParticipant("usr-a");
+        meeting.removeParticipant("usr-a");
+        journal.participantLeft(meeting, "usr-a");
+        journal.participantJoined(meeting, "usr-a"); // late join event, usr-a is gone already
+        journal.stop();
+
+        assertEquals(Set.of(), new MeetingJournal(true, path, 4096, 5).restore().getFirst().participants());
+    }
+}
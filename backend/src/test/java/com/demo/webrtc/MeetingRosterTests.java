@@ -0,0 +1,127 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeetingRosterTests {
+
+    private final SignalingFixture fixture = new SignalingFixture();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    // every change moves the version, a delta goes from the last flush to now, snapshots are built once per version
+    @Test
+    void deltasChainFromTheLastFlush() {
+        Meeting meeting = new Meeting("usr-a");
+        MeetingRoster roster = new MeetingRoster(meeting);
+
+        meeting.addParticipant("usr-a");
+        roster.record("usr-a", MeetingRoster.JOINED);
+        roster.record("usr-a", MeetingRoster.CONNECTED);
+        assertEquals(2, meeting.getRosterVersion());
+
+        MeetingRoster.Flush first = roster.drain();
+        assertEquals(0, first.base());
+        assertEquals(2, first.version());
+        JsonNode delta = json(first.delta());
+        assertEquals("rosterDelta", delta.path("kind").asString());
+        assertEquals(0, delta.path("base").asLong());
+        assertEquals(2, delta.path("version").asLong());
+        assertEquals(2, delta.path("changes").size());
+        JsonNode snapshot = json(first.snapshot());
+        assertEquals("info", snapshot.path("kind").asString());
+        assertEquals(2, snapshot.path("version").asLong());
+        assertTrue(snapshot.path("connected").path("usr-a").asBoolean());
+
+        // nothing changed: no delta, the same snapshot
+        MeetingRoster.Flush idle = roster.drain();
+        assertNull(idle.delta());
+        assertEquals(2, idle.base());
+        assertSame(first.snapshot(), idle.snapshot());
+
+        roster.record("usr-a", MeetingRoster.DISCONNECTED);
+        MeetingRoster.Flush next = roster.drain();
+        assertEquals(2, next.base());
+        assertEquals(3, next.version());
+        assertNotSame(first.snapshot(), next.snapshot());
+        assertFalse(json(next.snapshot()).path("connected").path("usr-a").asBoolean());
+    }
+
+    // membership events that no longer hold (published out of order) change nothing, not even the version
+    @Test
+    void staleMembershipEventsAreIgnored() {
+        Meeting meeting = new Meeting("usr-a");
+        MeetingRoster roster = new MeetingRoster(meeting);
+
+        roster.record("usr-a", MeetingRoster.JOINED); // not a participant
+        meeting.addParticipant("usr-b");
+        roster.record("usr-b", MeetingRoster.LEFT); // still a participant
+
+        assertEquals(0, meeting.getRosterVersion());
+        MeetingRoster.Flush flush = roster.drain();
+        assertNull(flush.delta());
+        assertEquals(0, json(flush.snapshot()).path("connected").size());
+    }
+
+    // a session that saw the delta's base gets the delta, one that missed a flush (its frame was not queued)
+    // gets the whole roster instead of a delta it cannot apply
+    @Test
+    void sessionBehindTheDeltaBaseGetsSnapshot() throws Exception {
+        Meeting meeting = new Meeting("usr-a");
+        MeetingWebSocketHandler handler = fixture.handlerFor(meeting);
+        BlockingQueue<String> toA = new LinkedBlockingQueue<>();
+        BlockingQueue<String> toB = new LinkedBlockingQueue<>();
+        SessionContext a = new SessionContext("usr-a", meeting.getMeetingId(), handler);
+        SessionContext b = new SessionContext("usr-b", meeting.getMeetingId(), handler);
+        meeting.addParticipant("usr-a");
+        meeting.addParticipant("usr-b");
+        handler.afterConnectionEstablished(SignalingFixture.session(a, toA));
+        handler.afterConnectionEstablished(SignalingFixture.session(b, toB));
+        fixture.awaitLoop(meeting.getMeetingId());
+        long seen = meeting.getRosterVersion();
+        assertEquals(seen, lastFrame(toA).path("version").asLong());
+        assertEquals(seen, lastFrame(toB).path("version").asLong());
+
+        fixture.loops.loopFor(meeting.getMeetingId()).submit(() -> b.setRosterVersion(seen - 1)).get();
+        meeting.addParticipant("usr-c");
+        fixture.awaitLoop(meeting.getMeetingId());
+
+        JsonNode deltaForA = lastFrame(toA);
+        assertEquals("rosterDelta", deltaForA.path("kind").asString());
+        assertEquals(seen, deltaForA.path("base").asLong());
+        assertEquals(List.of("usr-c"), deltaForA.path("changes").findValuesAsString("userId"));
+        JsonNode snapshotForB = lastFrame(toB);
+        assertEquals("info", snapshotForB.path("kind").asString());
+        assertEquals(seen + 1, snapshotForB.path("version").asLong());
+        assertEquals(3, snapshotForB.path("connected").size());
+        assertEquals(seen + 1, b.getRosterVersion());
+    }
+
+    private JsonNode json(OutboundMessage message) {
+        return objectMapper.readTree(((org.springframework.web.socket.TextMessage) message.encodedFor(SignalingCodec.JSON)).getPayload());
+    }
+
+    // the last frame sent so far, sends happen on the sender thread
+    private JsonNode lastFrame(BlockingQueue<String> received) throws InterruptedException {
+        String frame = received.poll(2, TimeUnit.SECONDS);
+        assertNotNull(frame, "nothing received");
+        String next;
+        while ((next = received.poll(100, TimeUnit.MILLISECONDS)) != null) {
+            frame = next;
+        }
+        return objectMapper.readTree(frame);
+    }
+}
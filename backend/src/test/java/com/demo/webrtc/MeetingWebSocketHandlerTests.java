@@ -0,0 +1,67 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeetingWebSocketHandlerTests {
+
+    private final SignalingFixture fixture = new SignalingFixture();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    // usr-a passed the membership check before it was removed, a frame still arriving on its socket afterwards
+    // is checked again (the removal moved the epoch) and not relayed
+    @Test
+    void frameInFlightAfterRemovalIsRejected() throws Exception {
+        Meeting meeting = new Meeting("usr-a");
+        MeetingWebSocketHandler handler = fixture.handlerFor(meeting);
+        BlockingQueue<String> toB = new LinkedBlockingQueue<>();
+        SessionContext a = new SessionContext("usr-a", meeting.getMeetingId(), handler);
+        meeting.addParticipant("usr-a");
+        meeting.addParticipant("usr-b");
+        WebSocketSession sessionA = SignalingFixture.session(a, new LinkedBlockingQueue<>());
+        handler.afterConnectionEstablished(sessionA);
+        handler.afterConnectionEstablished(SignalingFixture.session(new SessionContext("usr-b", meeting.getMeetingId(), handler), toB));
+
+        handler.handleTextMessage(sessionA, signal("before"));
+        assertEquals("before", nextSignal(toB));
+        long checked = a.getMembershipEpoch();
+
+        meeting.removeParticipant("usr-a");
+        assertEquals(-1, meeting.checkMembership("usr-a", checked));
+        handler.handleTextMessage(sessionA, signal("after"));
+        fixture.awaitLoop(meeting.getMeetingId());
+        assertNull(nextSignal(toB));
+        assertEquals(checked, a.getMembershipEpoch());
+    }
+
+    private static TextMessage signal(String payload) {
+        return new TextMessage("{\"kind\":\"signal\",\"from\":\"usr-a\",\"to\":\"usr-b\",\"payload\":\"" + payload + "\"}");
+    }
+
+    // payload of the next signal, skips the roster frames. null if none comes
+    private String nextSignal(BlockingQueue<String> received) throws InterruptedException {
+        String frame;
+        while ((frame = received.poll(500, TimeUnit.MILLISECONDS)) != null) {
+            JsonNode node = objectMapper.readTree(frame);
+            if (node.path("kind").asString().equals("signal")) {
+                return node.path("payload").asString();
+            }
+        }
+        return null;
+    }
+}
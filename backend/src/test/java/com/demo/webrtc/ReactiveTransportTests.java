@@ -0,0 +1,150 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the reactive transport on a random port, real websocket clients
+class ReactiveTransportTests {
+
+    private final SignalingFixture fixture = new SignalingFixture();
+    private final MeetingHandlerRegistry registry = fixture.registry;
+    private final ClusterNode cluster = new ClusterNode(false, "local", List.of("local"), 128, new LoopbackMessageBus(), registry, fixture.outboxFactory);
+    private final MeetingService meetings = new MeetingService(registry, fixture.wheel, cluster, new MeetingJournal(false, "", 0, 0), 500, 16);
+    private final AnonymousIdentityService identity = new AnonymousIdentityService("secret", 4, 100, 10);
+    private final ReactiveSignalingServer server = new ReactiveSignalingServer(
+            new WebSocketHandshakeInterceptor(registry, cluster, new DrainCoordinator(registry, 1000, 5000), 100, 200),
+            new RoutingWebSocketHandler(new InboundRateGuard(50, 200, 131072, 524288, 200), cluster),
+            identity, true, 0, 65536, "");
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        cluster.stop();
+        fixture.close();
+    }
+
+    @Test
+    void relaysSignalsBetweenReactiveClients() throws Exception {
+        String cookieA = signedCookie();
+        String cookieB = signedCookie();
+        String userA = cookieA.substring(0, cookieA.indexOf(':'));
+        String userB = cookieB.substring(0, cookieB.indexOf(':'));
+        Meeting meeting = meetings.createMeeting(userA);
+        meetings.joinMeeting(meeting.getMeetingId(), userA);
+        meetings.joinMeeting(meeting.getMeetingId(), userB);
+
+        Sinks.Many<String> outA = Sinks.many().unicast().onBackpressureBuffer();
+        BlockingQueue<String> toB = new LinkedBlockingQueue<>();
+        Disposable a = client(cookieA, meeting.getMeetingId(), outA.asFlux(), new LinkedBlockingQueue<>());
+        Disposable b = client(cookieB, meeting.getMeetingId(), Flux.never(), toB);
+        MeetingWebSocketHandler handler = registry.get(meeting.getMeetingId());
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!(handler.hasActiveSession(userA) && handler.hasActiveSession(userB)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            outA.tryEmitNext("{\"kind\":\"signal\",\"to\":\"" + userB + "\",\"from\":\"" + userA + "\",\"payload\":\"offer\"}");
+            String frame;
+            boolean relayed = false;
+            while (!relayed && (frame = toB.poll(5, TimeUnit.SECONDS)) != null) {
+                relayed = frame.contains("\"payload\":\"offer\"");
+            }
+            assertTrue(relayed);
+        } finally {
+            a.dispose();
+            b.dispose();
+            // let the server see the closes before the loops go away
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((handler.hasActiveSession(userA) || handler.hasActiveSession(userB)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void stampsTracesForClientsThatAskForThem() throws Exception {
+        String cookieA = signedCookie();
+        String cookieB = signedCookie();
+        String userA = cookieA.substring(0, cookieA.indexOf(':'));
+        String userB = cookieB.substring(0, cookieB.indexOf(':'));
+        Meeting meeting = meetings.createMeeting(userA);
+        meetings.joinMeeting(meeting.getMeetingId(), userA);
+        meetings.joinMeeting(meeting.getMeetingId(), userB);
+
+        Sinks.Many<String> outA = Sinks.many().unicast().onBackpressureBuffer();
+        BlockingQueue<String> toB = new LinkedBlockingQueue<>();
+        Disposable a = client(cookieA, meeting.getMeetingId(), outA.asFlux(), new LinkedBlockingQueue<>());
+        Disposable b = client(cookieB, meeting.getMeetingId() + "?trace=true", Flux.never(), toB);
+        MeetingWebSocketHandler handler = registry.get(meeting.getMeetingId());
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!(handler.hasActiveSession(userA) && handler.hasActiveSession(userB)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            outA.tryEmitNext("{\"kind\":\"signal\",\"to\":\"" + userB + "\",\"from\":\"" + userA + "\",\"payload\":\"offer\"}");
+            String frame;
+            String relayed = null;
+            while (relayed == null && (frame = toB.poll(5, TimeUnit.SECONDS)) != null) {
+                relayed = frame.contains("\"payload\":\"offer\"") ? frame : null;
+            }
+            assertNotNull(relayed);
+            assertTrue(relayed.contains("\"trace\":{\"parseMicros\":"), relayed);
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (fixture.meters.get("signaling.relay.hop").tag("hop", "write").timer().count() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, fixture.meters.get("signaling.relay.hop").tag("hop", "loop").timer().count());
+        } finally {
+            a.dispose();
+            b.dispose();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((handler.hasActiveSession(userA) || handler.hasActiveSession(userB)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void rejectsHandshakeWithoutIdentity() {
+        Integer status = HttpClient.create()
+                .get()
+                .uri("http://localhost:" + server.getPort() + "/wsr/some-meeting")
+                .response()
+                .map(r -> r.status().code())
+                .block(Duration.ofSeconds(5));
+        assertEquals(403, status);
+    }
+
+    private String signedCookie() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ReflectionTestUtils.setField(identity, "secureCookies", false);
+        identity.extractOrCreateUserId(new MockHttpServletRequest(), response);
+        String header = response.getHeader(HttpHeaders.SET_COOKIE);
+        return header.substring("userId=".length(), header.indexOf(';'));
+    }
+
+    private Disposable client(String cookie, String meetingId, Flux<String> out, BlockingQueue<String> received) {
+        return HttpClient.create()
+                .headers(h -> h.add("Cookie", "userId=" + cookie))
+                .websocket()
+                .uri("ws://localhost:" + server.getPort() + "/wsr/" + meetingId)
+                .handle((in, o) -> o.sendString(out).then().and(in.receive().asString().doOnNext(received::add)))
+                .subscribe();
+    }
+}
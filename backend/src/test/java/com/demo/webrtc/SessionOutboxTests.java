@@ -0,0 +1,83 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionOutboxTests {
+
+    // one sender thread, so a stalled send holds all of them
+    private final SessionOutboxFactory outboxFactory = new SessionOutboxFactory(256, 524288, 200, 1, false);
+
+    @AfterEach
+    void stop() {
+        outboxFactory.shutdown();
+    }
+
+    // nothing else is queued for the stalled session, the watchdog has to notice on its own, and the close must not
+    // wait for the sender thread the stalled send is holding
+    @Test
+    void stalledSessionIsEvictedWhileOthersKeepReceiving() throws Exception {
+        CompletableFuture<CloseStatus> stalledClosed = new CompletableFuture<>();
+        CountDownLatch stalledSending = new CountDownLatch(1);
+        // like a real socket, the blocked write fails once the session is closed
+        WebSocketSession stalled = session("stalled", () -> {
+            stalledSending.countDown();
+            stalledClosed.get();
+            throw new IOException("closed");
+        }, stalledClosed);
+        CountDownLatch received = new CountDownLatch(3);
+        WebSocketSession healthy = session("healthy", received::countDown, new CompletableFuture<>());
+
+        SessionOutbox stalledOutbox = outboxFactory.create(stalled);
+        SessionOutbox healthyOutbox = outboxFactory.create(healthy);
+        assertTrue(stalledOutbox.offer(new TextMessage("a")));
+        assertTrue(stalledSending.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(healthyOutbox.offer(new TextMessage("b" + i)));
+        }
+
+        assertEquals(WebSocketCloseStatus.SLOW_CONSUMER.get(), stalledClosed.get(5, TimeUnit.SECONDS));
+        assertTrue(received.await(5, TimeUnit.SECONDS), "healthy session did not receive after the eviction");
+        assertFalse(stalledOutbox.offer(new TextMessage("c")));
+        assertTrue(healthyOutbox.offer(new TextMessage("d")));
+    }
+
+    private interface Send {
+        void run() throws Exception;
+    }
+
+    private WebSocketSession session(String userId, Send send, CompletableFuture<CloseStatus> closed) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("userId", userId);
+        return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getAttributes" -> attributes;
+                    case "getId" -> userId;
+                    case "isOpen" -> !closed.isDone();
+                    case "sendMessage" -> {
+                        send.run();
+                        yield null;
+                    }
+                    case "close" -> {
+                        closed.complete(args != null && args.length > 0 ? (CloseStatus) args[0] : CloseStatus.NORMAL);
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,127 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import tools.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// every inbound frame type through encode and decode, in both wire formats
+class SignalingCodecTests {
+
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void signalRoundTrip(SignalingCodec codec) {
+        SignalingMessage sent = signal("usr-a", "usr-b", "{\"type\":\"offer\"}");
+        sent.setVersion(42L);
+
+        SignalingMessage received = (SignalingMessage) roundTrip(codec, sent);
+        assertEquals("signal", received.getKind());
+        assertEquals("usr-a", received.getFrom());
+        assertEquals("usr-b", received.getTo());
+        assertEquals("{\"type\":\"offer\"}", received.getPayload());
+        assertEquals(42L, received.getVersion());
+        assertNull(received.getTrace());
+    }
+
+    // the trace is written for the recipient, a client cannot send one in
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void traceIsWrittenButNotRead(SignalingCodec codec) {
+        SignalingMessage sent = signal("usr-a", "usr-b", "x");
+        sent.setTrace(new RelayTrace.Stamp(1, 2, 3));
+
+        var frame = codec.encode(sent);
+        JsonNode trace = codec.decode(frame, JsonNode.class).path("trace");
+        assertEquals(1, trace.path("parseMicros").asLong());
+        assertEquals(3, trace.path("loopMicros").asLong());
+        assertNull(((SignalingMessage) codec.decode(frame, WebSocketMessage.class)).getTrace());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void batchRoundTrip(SignalingCodec codec) {
+        BatchMessage sent = new BatchMessage(List.of(signal("usr-a", "usr-b", "c1"), signal("usr-a", "usr-c", "c2")));
+
+        BatchMessage received = (BatchMessage) roundTrip(codec, sent);
+        assertEquals("batch", received.getKind());
+        assertEquals(2, received.getSignals().size());
+        assertEquals("usr-c", received.getSignals().get(1).getTo());
+        assertEquals("c2", received.getSignals().get(1).getPayload());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void requestInfoRoundTrip(SignalingCodec codec) {
+        RequestInfoMessage sent = new RequestInfoMessage();
+        sent.setOffset(100);
+        sent.setLimit(50);
+
+        RequestInfoMessage received = (RequestInfoMessage) roundTrip(codec, sent);
+        assertEquals(100, received.getOffset());
+        assertEquals(50, received.getLimit());
+        assertNull(((RequestInfoMessage) roundTrip(codec, new RequestInfoMessage())).getOffset());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void subscribeRoundTrip(SignalingCodec codec) {
+        SubscribeMessage sent = new SubscribeMessage();
+        sent.setUserIds(List.of("usr-a", "usr-b"));
+
+        assertEquals(List.of("usr-a", "usr-b"), ((SubscribeMessage) roundTrip(codec, sent)).getUserIds());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void infoRoundTrip(SignalingCodec codec) {
+        InfoMessage sent = new InfoMessage();
+        sent.setConnected(Map.of("usr-a", "true"));
+
+        assertEquals(Map.of("usr-a", "true"), ((InfoMessage) roundTrip(codec, sent)).getConnected());
+    }
+
+    // roster messages are plain maps, encoded once per codec and shared by all recipients
+    @ParameterizedTest
+    @EnumSource(SignalingCodec.class)
+    void outboundMessageIsEncodedOncePerCodec(SignalingCodec codec) {
+        OutboundMessage message = new OutboundMessage(Map.of("kind", "rosterDelta", "base", 1L, "version", 2L,
+                "changes", List.of(new MeetingRoster.RosterChange("usr-a", MeetingRoster.JOINED))));
+
+        var frame = message.encodedFor(codec);
+        assertSame(frame, message.encodedFor(codec));
+        JsonNode decoded = codec.decode(frame, JsonNode.class);
+        assertEquals("rosterDelta", decoded.path("kind").asString());
+        assertEquals(2, decoded.path("version").asLong());
+        assertEquals("usr-a", decoded.path("changes").path(0).path("userId").asString());
+        assertEquals("joined", decoded.path("changes").path(0).path("event").asString());
+    }
+
+    @Test
+    void framesPickTheirCodec() {
+        assertInstanceOf(TextMessage.class, SignalingCodec.JSON.encode(new RequestInfoMessage()));
+        assertInstanceOf(BinaryMessage.class, SignalingCodec.CBOR.encode(new RequestInfoMessage()));
+        assertEquals(SignalingCodec.CBOR, SignalingCodec.forFrame(SignalingCodec.CBOR.encode(new RequestInfoMessage())));
+        assertEquals(SignalingCodec.JSON, SignalingCodec.forFrame(SignalingCodec.JSON.encode(new RequestInfoMessage())));
+        assertEquals(SignalingCodec.CBOR, SignalingCodec.forSubProtocol("signaling.cbor"));
+        assertEquals(SignalingCodec.JSON, SignalingCodec.forSubProtocol(null));
+    }
+
+    private static WebSocketMessage roundTrip(SignalingCodec codec, WebSocketMessage message) {
+        return codec.decode(codec.encode(message), WebSocketMessage.class);
+    }
+
+    private static SignalingMessage signal(String from, String to, String payload) {
+        SignalingMessage signal = new SignalingMessage();
+        signal.setFrom(from);
+        signal.setTo(to);
+        signal.setPayload(payload);
+        return signal;
+    }
+}
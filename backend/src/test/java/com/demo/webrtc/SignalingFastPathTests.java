@@ -0,0 +1,36 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalingFastPathTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void splicedFrameMatchesFullPath() {
+        String json = "{\"kind\":\"signal\",\"to\":\"usr-b\",\"from\":\"usr-a\",\"payload\":\"{\\\"type\\\":\\\"offer\\\",\\\"content\\\":\\\"v=0\\\\r\\\\n\\\"}\"} ";
+
+        SignalingFastPath.Header header = SignalingFastPath.parseHeader(objectMapper, json);
+        assertNotNull(header);
+        assertEquals("usr-b", header.to());
+        assertEquals("usr-a", header.from());
+
+        SignalingMessage fast = objectMapper.readValue(SignalingFastPath.spliceVersion(json, header, 42L), SignalingMessage.class);
+        SignalingMessage full = objectMapper.readValue(json, SignalingMessage.class);
+        full.setVersion(42L);
+        assertEquals(objectMapper.writeValueAsString(full), objectMapper.writeValueAsString(fast));
+    }
+
+    @Test
+    void unexpectedFramesFallBack() {
+        assertNull(SignalingFastPath.parseHeader(objectMapper, "{\"kind\":\"requestInfo\"}"));
+        assertNull(SignalingFastPath.parseHeader(objectMapper, "{\"kind\":\"signal\",\"to\":\"b\",\"from\":\"a\",\"payload\":\"x\",\"version\":1}"));
+        assertNull(SignalingFastPath.parseHeader(objectMapper, "{\"kind\":\"signal\",\"to\":\"b\",\"to\":\"c\",\"from\":\"a\",\"payload\":\"x\"}"));
+        assertNull(SignalingFastPath.parseHeader(objectMapper, "{\"kind\":\"signal\",\"to\":\"b\",\"from\":\"a\"}"));
+        assertNull(SignalingFastPath.parseHeader(objectMapper, "{\"kind\":\"signal\",\"to\":\"b\",\"from\":\"a\",\"payload\":\"x\"} {}"));
+        assertNull(SignalingFastPath.parseHeader(objectMapper, "not json"));
+    }
+}
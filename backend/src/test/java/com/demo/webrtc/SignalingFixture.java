@@ -0,0 +1,88 @@
+package com.demo.webrtc;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+// the signaling core wired like the beans but without spring (timeout wheel, meeting event loop, outboxes, metrics,
+// handler registry), plus open sessions without a container. shared by the tests and the jmh benchmarks
+// (the jmh profile compiles src/jmh/java against the test classes)
+final class SignalingFixture implements AutoCloseable {
+
+    final HashedTimeoutWheel wheel = new HashedTimeoutWheel(100, 64);
+    final MeetingEventLoopGroup loops = new MeetingEventLoopGroup(1);
+    final SessionOutboxFactory outboxFactory;
+    final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    final SignalingMetrics metrics = new SignalingMetrics(meters);
+    final long rosterFlushMillis;
+    final MeetingHandlerRegistry registry;
+
+    SignalingFixture() {
+        this(new SessionOutboxFactory(256, 524288, 5000, 1, false), 0);
+    }
+
+    SignalingFixture(SessionOutboxFactory outboxFactory, long rosterFlushMillis) {
+        this.outboxFactory = outboxFactory;
+        this.rosterFlushMillis = rosterFlushMillis;
+        this.registry = newRegistry();
+    }
+
+    // another node's registry on the same loops, wheel and outboxes
+    MeetingHandlerRegistry newRegistry() {
+        return new MeetingHandlerRegistry(loops, wheel, outboxFactory, metrics, rosterFlushMillis);
+    }
+
+    MeetingWebSocketHandler handlerFor(Meeting meeting) {
+        registry.registerHandler(meeting);
+        return registry.get(meeting.getMeetingId());
+    }
+
+    // returns once everything queued on the meeting's loop so far has run
+    void awaitLoop(String meetingId) throws Exception {
+        loops.loopFor(meetingId).submit(() -> {}).get();
+    }
+
+    @Override
+    public void close() {
+        loops.shutdown();
+        wheel.stop();
+        outboxFactory.shutdown();
+    }
+
+    // open session that collects the text frames sent to it
+    static WebSocketSession session(SessionContext ctx, BlockingQueue<String> received) {
+        return session(ctx, message -> {
+            if (message instanceof TextMessage t) {
+                received.add(t.getPayload());
+            }
+        });
+    }
+
+    // open session that hands every sent message to onSend (a mock would record every call)
+    static WebSocketSession session(SessionContext ctx, Consumer<org.springframework.web.socket.WebSocketMessage<?>> onSend) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("userId", ctx.getUserId());
+        attributes.put(SessionContext.ATTRIBUTE, ctx);
+        String id = UUID.randomUUID().toString();
+        return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getAttributes" -> attributes;
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        onSend.accept((org.springframework.web.socket.WebSocketMessage<?>) args[0]);
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
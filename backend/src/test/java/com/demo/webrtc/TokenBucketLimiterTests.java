@@ -0,0 +1,78 @@
+package com.demo.webrtc;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstThenOneTokenPerInterval() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1024, 60, 3); // one per second
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("usr-a", 1, now));
+        }
+        long wait = limiter.tryAcquire("usr-a", 1, now);
+        assertEquals(SECOND, wait);
+        assertEquals(0, limiter.tryAcquire("usr-b", 1, now)); // own bucket
+        assertEquals(0, limiter.tryAcquire("usr-a", 2, now)); // different seed, different bucket
+
+        assertEquals(0, limiter.tryAcquire("usr-a", 1, now + wait));
+        assertTrue(limiter.tryAcquire("usr-a", 1, now + wait) > 0);
+    }
+
+    @Test
+    void tableStaysBoundedUnderManyKeys() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(512, 60, 1);
+        long now = 1_000 * SECOND;
+        assertEquals(0, limiter.tryAcquire("usr-a", 1, now));
+        assertTrue(limiter.tryAcquire("usr-a", 1, now) > 0);
+
+        // far more busy keys than slots, buckets get reused instead of growing the table,
+        // so usr-a is forgotten and let through again
+        for (int i = 0; i < 100_000; i++) {
+            limiter.tryAcquire("usr-" + i, 1, now);
+        }
+        assertEquals(0, limiter.tryAcquire("usr-a", 1, now));
+    }
+
+    @Test
+    void limitedUserDoesNotUseUpIpBucket() {
+        // create: 1 per user, 2 per ip
+        RequestRateLimiter limiter = new RequestRateLimiter(1024, 2, 1, 1, 60, 20);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+
+        assertEquals(0, limiter.checkCreate("usr-a", request));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.checkCreate("usr-a", request) > 0);
+        }
+        // the rejected attempts did not take the address' second token
+        assertEquals(0, limiter.checkCreate("usr-b", request));
+        assertTrue(limiter.checkCreate("usr-c", request) > 0);
+    }
+
+    // the other direction: the address runs out (e.g. a concurrent request took its last token) after the user's
+    // token was taken, the user's token is given back
+    @Test
+    void ipLimitedRequestDoesNotUseUpUserBucket() {
+        RequestRateLimiter limiter = new RequestRateLimiter(1024, 2, 1, 1, 60, 20);
+        MockHttpServletRequest shared = new MockHttpServletRequest();
+        shared.setRemoteAddr("203.0.113.7");
+        MockHttpServletRequest other = new MockHttpServletRequest();
+        other.setRemoteAddr("198.51.100.9");
+
+        assertEquals(0, limiter.checkCreate("usr-b", shared));
+        assertEquals(0, limiter.checkCreate("usr-c", shared));
+        assertTrue(limiter.checkCreate("usr-a", shared) > 0);
+        assertEquals(0, limiter.checkCreate("usr-a", other));
+        assertTrue(limiter.checkCreate("usr-a", other) > 0);
+    }
+}
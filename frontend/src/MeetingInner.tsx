@@ -1,5 +1,5 @@
 import { useEffect, useState } from "react";
-import {useWebSocket} from "./useWebSocket.ts";
+import {RECONNECT_CLOSE_CODE, useWebSocket} from "./useWebSocket.ts";
 import WebSocketStatus from "./WebSocketStatus";
 import type {InfoMessage} from "./ZodSchemas";
 import DummyAudioElement from "./DummyAudioElement.tsx";
@@ -133,7 +133,9 @@ export default function MeetingInner({myId} : {myId:string, setInMeeting : (b: b
     }
 
     function closeEventHandler(ev : CloseEvent) {
-        if (ev.code >= 4000) {
+        if (ev.code === RECONNECT_CLOSE_CODE) {
+            console.log("Server restarting, reconnecting shortly")
+        } else if (ev.code >= 4000) {
             navigate("/")
             alert(ev.reason)
         } else {
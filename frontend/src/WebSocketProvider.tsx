@@ -1,15 +1,35 @@
 import {useEffect, useRef, useState, useCallback, type ReactNode} from "react";
-import {WebSocketContext} from "./useWebSocket.ts";
+import {RECONNECT_CLOSE_CODE, WebSocketContext} from "./useWebSocket.ts";
 import {
     type ExtRTCSignalingMessage,
-    EnvelopeSchema, InfoUnwrapSchema, SignalUnwrapSchema,
-    type InfoMessage, type OutgoingExtRTCSignalingMessage
+    BatchUnwrapSchema, EnvelopeSchema, InfoUnwrapSchema, RosterDeltaUnwrapSchema, RosterPageUnwrapSchema, SignalUnwrapSchema,
+    type InfoMessage, type OutgoingExtRTCSignalingMessage, type RosterDeltaMessage
 } from "./ZodSchemas";
 
 export type InfoMessageHandler = (m: InfoMessage) => void;
 export type SignalingMessageHandler = (m: ExtRTCSignalingMessage) => void;
 export type CloseEventHandler = (e: CloseEvent) => void;
 
+// server side limit of a subscription (SubscribeMessage.MAX_USER_IDS), also the default roster page size
+const MAX_SUBSCRIBED_USERS = 100;
+
+function applyRosterDelta(current: InfoMessage|null, delta: RosterDeltaMessage): InfoMessage|null {
+    if (current === null || current.version !== delta.base) {
+        return null
+    }
+    const connected = {...current.connected}
+    delta.changes.forEach(({userId, event}) => {
+        if (event === "joined") {
+            connected[userId] = false
+        } else if (event === "left") {
+            delete connected[userId]
+        } else if (userId in connected) {
+            connected[userId] = event === "connected"
+        }
+    })
+    return {version: delta.version, connected: connected}
+}
+
 export default function WebSocketProvider({meetingId, children} : {meetingId:string, myId:string, children:ReactNode}) {
 
     const webSocketRef = useRef<WebSocket|null>(null);
@@ -19,8 +39,11 @@ export default function WebSocketProvider({meetingId, children} : {meetingId:str
     const rtcSignalCallback = useRef<SignalingMessageHandler|null>(null)
     const closedEventCallback = useRef<CloseEventHandler|null>(null) // callback for handling ws errors
 
+    const roster = useRef<InfoMessage|null>(null) // last known roster, deltas are applied on top of it
+
     const maxReconnectAttempts = 3;
     const reconnectAttempts = useRef<number>(0)
+    const reconnectTimer = useRef<number|null>(null)
     const [failed, setFailed] = useState<boolean>(false);
 
     const connect = useCallback(() => {
@@ -55,9 +78,15 @@ export default function WebSocketProvider({meetingId, children} : {meetingId:str
                 callback(event)
             }
 
-            if (event.code < 4000 && reconnectAttempts.current < maxReconnectAttempts) {
+            if (event.code === RECONNECT_CLOSE_CODE) {
+                const delay = parseInt(event.reason.split(":")[1] ?? "", 10)
+                reconnectAttempts.current = 0;
+                reconnectTimer.current = window.setTimeout(connect, Number.isNaN(delay) ? 1000 : delay)
+            } else if (event.code < 4000 && reconnectAttempts.current < maxReconnectAttempts) {
                 reconnectAttempts.current += 1;
-                connect()
+                // backoff with jitter, clients of a failed server should not all come back in the same second
+                const delay = 250 * 2 ** (reconnectAttempts.current - 1) * (0.5 + Math.random())
+                reconnectTimer.current = window.setTimeout(connect, delay)
             } else {
                 setFailed(true);
             }
@@ -81,14 +110,39 @@ export default function WebSocketProvider({meetingId, children} : {meetingId:str
                 const env = EnvelopeSchema.parse(d);
                 if (env.kind === "info") {
                     const info = InfoUnwrapSchema.parse(d);
+                    roster.current = info
                     if (infoCallback.current !== null) {
                         infoCallback.current(info)
                     } else console.error("[WS] Received \"info\" message without callback registered")
+                } else if (env.kind === "rosterDelta") {
+                    const delta = RosterDeltaUnwrapSchema.parse(d);
+                    const info = applyRosterDelta(roster.current, delta)
+                    if (info === null) {
+                        // missed something, the full roster is sent in response
+                        requestInfo()
+                        return
+                    }
+                    roster.current = info
+                    if (infoCallback.current !== null) {
+                        infoCallback.current(info)
+                    } else console.error("[WS] Received \"rosterDelta\" message without callback registered")
+                } else if (env.kind === "rosterPage") {
+                    // large room: we get "info" and deltas only for the users we subscribe to, which are the ones
+                    // on the first page. a peer that joined later is found through requestInfo when it signals us
+                    const page = RosterPageUnwrapSchema.parse(d);
+                    subscribe(Object.keys(page.connected).slice(0, MAX_SUBSCRIBED_USERS))
                 } else if (env.kind === "signal") {
                     const sig = SignalUnwrapSchema.parse(d)
                     if (rtcSignalCallback.current !== null) {
                         rtcSignalCallback.current(sig)
                     } else console.error("[WS] Received \"signal\" message without callback registered")
+                } else if (env.kind === "batch") {
+                    // the server groups bursts of signals for us into one frame, handled as if sent one by one
+                    const sigs = BatchUnwrapSchema.parse(d).signals.map(s => SignalUnwrapSchema.parse(s))
+                    const callback = rtcSignalCallback.current
+                    if (callback !== null) {
+                        sigs.forEach(sig => callback(sig))
+                    } else console.error("[WS] Received \"batch\" message without callback registered")
                 }
             } catch (e) {
                 const err = e as Error;
@@ -126,6 +180,14 @@ export default function WebSocketProvider({meetingId, children} : {meetingId:str
 
     }, [])
 
+    const subscribe = useCallback((userIds: string[]) => {
+        try {
+            send(JSON.stringify({kind: "subscribe", userIds: userIds}))
+        } catch (error) {
+            console.error("Error subscribing:", error)
+        }
+    }, [])
+
     const prepareAndSend = useCallback((message: OutgoingExtRTCSignalingMessage) => {
         const {to, from, ...rest} = message;
         try {
@@ -162,6 +224,9 @@ export default function WebSocketProvider({meetingId, children} : {meetingId:str
     useEffect(() => {
         return () => {
             const ws = webSocketRef.current
+            if (reconnectTimer.current !== null) {
+                clearTimeout(reconnectTimer.current)
+            }
             infoCallback.current = null;
             rtcSignalCallback.current = null;
             closedEventCallback.current = null;
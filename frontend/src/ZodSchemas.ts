@@ -69,7 +69,7 @@ export const TurnCredentialsSchema = z.object({
 
 
 export const EnvelopeSchema = z.object({
-    kind: z.enum(["info", "signal"])
+    kind: z.enum(["info", "signal", "rosterDelta", "batch", "rosterPage"])
 })
 
 
@@ -86,8 +86,36 @@ export const SignalUnwrapSchema = z.object({
     ...JSON.parse(msg.payload),
 })).pipe(ExtRTCSignalingMessageSchema)
 
+// elements are parsed one by one with SignalUnwrapSchema
+export const BatchUnwrapSchema = z.object({
+    kind: z.literal("batch"),
+    signals: z.array(z.unknown()),
+})
+
 export const InfoUnwrapSchema = z.object({
     kind: z.literal("info"),
+    version: z.int().nonnegative(),
+    connected: z.record(z.string(), z.boolean()),
+}).omit({kind:true})
+
+// changes since roster version "base", only valid on top of exactly that version
+export const RosterDeltaUnwrapSchema = z.object({
+    kind: z.literal("rosterDelta"),
+    base: z.int().nonnegative(),
+    version: z.int().nonnegative(),
+    changes: z.array(z.object({
+        userId: z.string(),
+        event: z.enum(["joined", "left", "connected", "disconnected"]),
+    })),
+}).omit({kind:true})
+
+// large rooms answer requestInfo with one page of the roster (join order) instead of "info",
+// the client subscribes to the users on it and then gets "info"/"rosterDelta" about those only
+export const RosterPageUnwrapSchema = z.object({
+    kind: z.literal("rosterPage"),
+    version: z.int().nonnegative(),
+    offset: z.int().nonnegative(),
+    total: z.int().nonnegative(),
     connected: z.record(z.string(), z.boolean()),
 }).omit({kind:true})
 
@@ -102,12 +130,21 @@ const InfoRequestSchema = z.object({
     kind: z.literal("requestInfo"),
 })
 
+// at most 100 users, more are discarded by the server
+const SubscribeSchema = z.object({
+    kind: z.literal("subscribe"),
+    userIds: z.array(z.string()).max(100),
+})
+
 export const OutgoingSchema = z.discriminatedUnion("kind", [
     OutgoingSignalEnvelopeSchema,
-    InfoRequestSchema
+    InfoRequestSchema,
+    SubscribeSchema
 ])
 
 export type InfoMessage = z.infer<typeof InfoUnwrapSchema>
+export type RosterDeltaMessage = z.infer<typeof RosterDeltaUnwrapSchema>
+export type RosterPageMessage = z.infer<typeof RosterPageUnwrapSchema>
 export type OutgoingExtRTCSignalingMessage = z.infer<typeof OutgoingExtRTCSignalingMessageSchema>;
 export type RTCSignalingMessage = z.infer<typeof RTCSignalingMessageSchema>;
 export type ExtRTCSignalingMessage = z.infer<typeof ExtRTCSignalingMessageSchema>
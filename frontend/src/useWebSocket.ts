@@ -15,6 +15,9 @@ type WebSocketContext = {
 
 export const WebSocketContext = createContext<WebSocketContext|null>(null);
 
+// server is going away, reason is "reconnect:<ms>" (includes jitter so not everyone comes back at once)
+export const RECONNECT_CLOSE_CODE = 4008;
+
 
 export const useWebSocket = () => {
     const context = useContext(WebSocketContext);